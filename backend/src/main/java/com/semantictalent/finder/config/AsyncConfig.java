@@ -3,21 +3,42 @@ package com.semantictalent.finder.config;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
     
-    @Bean(name = "shardSearchTaskExecutor")
-    public Executor shardSearchTaskExecutor() {
+    /**
+     * Cross-shard fan-out: one virtual thread per shard query, so blocking JDBC calls
+     * don't tie up platform threads (concurrency is bounded by the shard pools)
+     */
+    @Bean(name = "shardSearchTaskExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService shardSearchTaskExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-search-", 0).factory());
+    }
+    
+    /**
+     * Import writes: one virtual thread per shard batch (concurrency is bounded by the shard pools)
+     */
+    @Bean(name = "shardWriteTaskExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService shardWriteTaskExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-write-", 0).factory());
+    }
+    
+    @Bean(name = "hybridSearchTaskExecutor")
+    public Executor hybridSearchTaskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(8);
-        executor.setMaxPoolSize(20);
+        executor.setMaxPoolSize(16);
         executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("shard-search-");
+        executor.setThreadNamePrefix("hybrid-search-");
         executor.setKeepAliveSeconds(60);
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
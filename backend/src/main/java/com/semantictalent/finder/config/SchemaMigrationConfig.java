@@ -0,0 +1,18 @@
+package com.semantictalent.finder.config;
+
+import com.semantictalent.finder.service.SchemaMigrationService;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SchemaMigrationConfig {
+    
+    /**
+     * Apply the catalogue migrations before Hibernate updates or validates the schema
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaMigrationDependsOnPostProcessor() {
+        return new EntityManagerFactoryDependsOnPostProcessor(SchemaMigrationService.class);
+    }
+}
@@ -0,0 +1,269 @@
+package com.semantictalent.finder.config;
+
+import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.util.HashUtils;
+import com.semantictalent.finder.util.UuidUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Hash placement over a fixed ring of buckets (HashConfig.bucketCount, 1024 by default).
+ * A key is hashed with HashConfig.algorithm into a bucket, and each bucket is owned by one
+ * shard according to the shards' hash-ranges (inclusive [start, end] pairs). Buckets no
+ * range claims belong to the next owned bucket clockwise, so adding a shard or moving a
+ * range only relocates the buckets that change owner.
+ * Bucket migrations add relocations on top: rows of a shard whose bucket was moved now
+ * live on (and are written to) the migration's target shard.
+ */
+@Component
+@Slf4j
+public class ShardBucketRouter {
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    private String algorithm = "murmur3";
+    private String hashField = "profile_id";
+    
+    /**
+     * Bucket owners for hash placement plus per-shard relocations (source shard -> bucket -> target shard)
+     */
+    private record RoutingTable(String[] owners, Map<String, String[]> relocations) {}
+    
+    // Replaced wholesale so readers always see a consistent table
+    private volatile RoutingTable routingTable = new RoutingTable(new String[0], Map.of());
+    
+    @PostConstruct
+    public void init() {
+        if (!shardConfig.isEnabled() || shardConfig.getShards() == null) {
+            return;
+        }
+        
+        List<ShardConfig.ShardDefinition> hashedShards = shardConfig.getShards().stream()
+            .filter(shard -> shard.isActive() && shard.getHash() != null)
+            .toList();
+        
+        ShardConfig.HashConfig settings = hashedShards.isEmpty() ? new ShardConfig.HashConfig() : hashedShards.get(0).getHash();
+        for (ShardConfig.ShardDefinition shard : hashedShards) {
+            ShardConfig.HashConfig hash = shard.getHash();
+            if (hash.getBucketCount() != settings.getBucketCount() || !hash.getAlgorithm().equals(settings.getAlgorithm())
+                || !hash.getHashField().equals(settings.getHashField())) {
+                log.warn("Shard {} hash settings differ from {}; using {} buckets, {} on {}", shard.getShardId(),
+                        hashedShards.get(0).getShardId(), settings.getBucketCount(), settings.getAlgorithm(), settings.getHashField());
+            }
+        }
+        algorithm = settings.getAlgorithm();
+        hashField = settings.getHashField();
+        
+        routingTable = new RoutingTable(buildBucketTable(Math.max(1, settings.getBucketCount()), hashedShards), Map.of());
+        log.info("Hash placement: {} buckets ({}) across {}", getBucketCount(), algorithm, getBucketDistribution());
+    }
+    
+    /**
+     * Bucket a key hashes to
+     */
+    public int bucketOf(String key) {
+        return Math.floorMod(HashUtils.hash(algorithm, key), routingTable.owners().length);
+    }
+    
+    /**
+     * Shard owning the key's bucket, or null if no shards are configured
+     */
+    public String resolveShard(String key) {
+        String[] table = routingTable.owners();
+        return table.length == 0 ? null : table[Math.floorMod(HashUtils.hash(algorithm, key), table.length)];
+    }
+    
+    /**
+     * Shard owning the key's bucket, skipping ineligible (e.g. overloaded) shards by walking
+     * clockwise to the next bucket with an eligible owner; spilled keys land evenly on the
+     * remaining shards in proportion to the buckets they own
+     * @return Eligible owner, or the plain owner if no shard is eligible
+     */
+    public String resolveShard(String key, Predicate<String> eligible) {
+        String[] table = routingTable.owners();
+        if (table.length == 0) {
+            return null;
+        }
+        
+        int bucket = Math.floorMod(HashUtils.hash(algorithm, key), table.length);
+        for (int step = 0; step < table.length; step++) {
+            String owner = table[(bucket + step) % table.length];
+            if (eligible.test(owner)) {
+                return owner;
+            }
+        }
+        return table[bucket];
+    }
+    
+    /**
+     * Value hashed for a profile, per HashConfig.hashField (falls back to the id). A profile
+     * without an id is given its UUIDv7 here, so the bucket it is placed by is the bucket its
+     * id hashes to when it is later looked up or migrated.
+     */
+    public String hashKey(Profile profile) {
+        if ("linkedin_url".equals(hashField) && profile.getLinkedinUrl() != null) {
+            return profile.getLinkedinUrl();
+        }
+        if (profile.getId() == null) {
+            profile.setId(UuidUtils.generateV7());
+        }
+        return profile.getId().toString();
+    }
+    
+    public int getBucketCount() {
+        return routingTable.owners().length;
+    }
+    
+    /**
+     * Shard that holds the key's rows when placement chose shardId, following completed bucket migrations
+     */
+    public String applyRelocations(String shardId, String key) {
+        RoutingTable table = routingTable;
+        if (table.relocations().isEmpty() || table.owners().length == 0) {
+            return shardId;
+        }
+        
+        int bucket = Math.floorMod(HashUtils.hash(algorithm, key), table.owners().length);
+        String current = shardId;
+        // Chains (A -> B -> C) are followed; the hop limit guards against a misconfigured cycle
+        for (int hop = 0; hop < table.relocations().size(); hop++) {
+            String[] targets = table.relocations().get(current);
+            if (targets == null || targets[bucket] == null) {
+                break;
+            }
+            current = targets[bucket];
+        }
+        return current;
+    }
+    
+    /**
+     * Shards that took over buckets from the given shard, directly or through a chain
+     */
+    public Set<String> getRelocationTargets(String shardId) {
+        Map<String, String[]> relocations = routingTable.relocations();
+        Set<String> targets = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(List.of(shardId));
+        while (!pending.isEmpty()) {
+            String[] moved = relocations.get(pending.poll());
+            if (moved == null) {
+                continue;
+            }
+            for (String target : moved) {
+                if (target != null && !target.equals(shardId) && targets.add(target)) {
+                    pending.add(target);
+                }
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * Search targets widened with the shards that hold relocated buckets of any of them
+     */
+    public List<String> withRelocationTargets(List<String> shardIds) {
+        if (routingTable.relocations().isEmpty()) {
+            return shardIds;
+        }
+        Set<String> expanded = new LinkedHashSet<>(shardIds);
+        for (String shardId : shardIds) {
+            expanded.addAll(getRelocationTargets(shardId));
+        }
+        return expanded.size() == shardIds.size() ? shardIds : List.copyOf(expanded);
+    }
+    
+    /**
+     * Atomically move buckets of sourceShard to targetShard: its relocations and, where the source
+     * owned them, the hash placement. Lookups see either the old or the new table, never a mix.
+     */
+    public synchronized void relocateBuckets(String sourceShard, Collection<Integer> buckets, String targetShard) {
+        RoutingTable current = routingTable;
+        String[] owners = Arrays.copyOf(current.owners(), current.owners().length);
+        Map<String, String[]> relocations = new HashMap<>(current.relocations());
+        String[] moved = relocations.containsKey(sourceShard)
+            ? Arrays.copyOf(relocations.get(sourceShard), owners.length)
+            : new String[owners.length];
+        
+        for (int bucket : buckets) {
+            moved[bucket] = targetShard;
+            if (sourceShard.equals(owners[bucket])) {
+                owners[bucket] = targetShard;
+            }
+        }
+        relocations.put(sourceShard, moved);
+        routingTable = new RoutingTable(owners, Map.copyOf(relocations));
+        log.info("Relocated {} buckets from {} to {}", buckets.size(), sourceShard, targetShard);
+    }
+    
+    /**
+     * Number of buckets owned by each shard
+     */
+    public Map<String, Integer> getBucketDistribution() {
+        Map<String, Integer> distribution = new TreeMap<>();
+        for (String owner : routingTable.owners()) {
+            distribution.merge(owner, 1, Integer::sum);
+        }
+        return distribution;
+    }
+    
+    private String[] buildBucketTable(int bucketCount, List<ShardConfig.ShardDefinition> hashedShards) {
+        String[] table = new String[bucketCount];
+        
+        for (ShardConfig.ShardDefinition shard : hashedShards) {
+            List<Integer> ranges = shard.getHash().getHashRanges();
+            if (ranges == null) {
+                continue;
+            }
+            if (ranges.size() % 2 != 0) {
+                log.warn("Shard {} hash-ranges has an odd number of bounds; ignoring the last one", shard.getShardId());
+            }
+            for (int i = 0; i + 1 < ranges.size(); i += 2) {
+                int start = Math.max(0, ranges.get(i));
+                int end = Math.min(bucketCount - 1, ranges.get(i + 1));
+                for (int bucket = start; bucket <= end; bucket++) {
+                    if (table[bucket] != null) {
+                        log.warn("Bucket {} claimed by both {} and {}; keeping {}", bucket, table[bucket], shard.getShardId(), table[bucket]);
+                        continue;
+                    }
+                    table[bucket] = shard.getShardId();
+                }
+            }
+        }
+        
+        if (Arrays.stream(table).allMatch(owner -> owner == null)) {
+            // No ranges configured: split the ring evenly across the active shards
+            List<String> shardIds = hashedShards.isEmpty()
+                ? shardConfig.getAllActiveShardIds()
+                : hashedShards.stream().map(ShardConfig.ShardDefinition::getShardId).toList();
+            if (shardIds.isEmpty()) {
+                return new String[0];
+            }
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                table[bucket] = shardIds.get((int) ((long) bucket * shardIds.size() / bucketCount));
+            }
+            return table;
+        }
+        
+        // Unclaimed buckets belong to the next owned bucket clockwise
+        for (int bucket = bucketCount - 1, pass = 0; pass < 2 * bucketCount; pass++, bucket = Math.floorMod(bucket - 1, bucketCount)) {
+            if (table[bucket] == null) {
+                table[bucket] = table[(bucket + 1) % bucketCount];
+            }
+        }
+        return table;
+    }
+}
@@ -15,10 +15,31 @@ public class ShardConfig {
     private String strategy = "geographic_hash"; // geographic_hash, hash_only, geographic_only
     private int defaultShardCount = 5;
     private int maxRecordsPerShard = 15_000_000;
+    private long searchDeadlineMs = 3000; // End-to-end budget for one cross-shard search
+    private long latencyWindowMs = 60_000; // Shard latency percentiles cover the last one to two windows
     
     // Shard definitions
     private List<ShardDefinition> shards;
     
+    // Hedged reads against replicas
+    private HedgingConfig hedging = new HedgingConfig();
+    
+    // Fail fast on shards that keep failing, and cap concurrent calls per shard
+    private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
+    private BulkheadConfig bulkhead = new BulkheadConfig();
+    
+    // Load-aware choice between a shard's primary and replicas
+    private SelectionConfig selection = new SelectionConfig();
+    
+    // Routing decision cache
+    private RoutingCacheConfig routingCache = new RoutingCacheConfig();
+    
+    // Shard-parallel import writes
+    private WriterConfig writer = new WriterConfig();
+    
+    // Online bucket migration between shards
+    private MigrationConfig migration = new MigrationConfig();
+    
     // Geographic mapping
     private Map<String, String> stateToRegion;
     private Map<String, String> countryToShard;
@@ -35,6 +56,9 @@ public class ShardConfig {
         private int priority = 1; // Lower numbers = higher priority for reads
         private long maxRecords;
         private double maxStorageGb;
+        private long queryTimeoutMs = 0; // Per-shard statement timeout; 0 = request budget only
+        private int writeBatchSize = 0; // Rows per import transaction on this shard; 0 = writer.batch-size
+        private List<DatabaseConfig> replicas; // Read replicas used for hedged searches
     }
     
     @Data
@@ -65,6 +89,62 @@ public class ShardConfig {
         private List<Integer> hashRanges; // e.g., [0-255], [256-511], etc.
     }
     
+    @Data
+    public static class HedgingConfig {
+        private boolean enabled = true;
+        private double percentile = 0.95; // Hedge once a shard is slower than this latency percentile
+        private long minDelayMs = 10;
+        private long defaultDelayMs = 250; // Used until minSamples latencies have been observed
+        private int minSamples = 50;
+        private double maxHedgeRatio = 0.1; // Cap on hedged requests as a fraction of all shard requests
+        private long maxReplicaLagMs = 5000; // Replicas further behind (or unreachable) aren't hedged to
+    }
+    
+    @Data
+    public static class CircuitBreakerConfig {
+        private boolean enabled = true;
+        private double failureRateThreshold = 0.5; // Open at this failure rate over the sliding window
+        private int slidingWindowSize = 20; // Most recent calls considered
+        private int minimumCalls = 10; // Calls needed before the failure rate is trusted
+        private long openDurationMs = 30_000; // Fail fast this long before probing half-open
+        private int halfOpenProbes = 3; // Successful probes needed to close again
+    }
+    
+    @Data
+    public static class BulkheadConfig {
+        private boolean enabled = true;
+        private int maxConcurrentCalls = 0; // Per shard; 0 = the shard database's max-connections
+        private long maxWaitMs = 20; // Wait for a free slot before rejecting
+    }
+    
+    @Data
+    public static class SelectionConfig {
+        private boolean enabled = true;
+        private long decayMs = 10_000; // Time constant of the latency/error averages
+        private double shedFactor = 0.0; // Opt-in: skip priority > 1 shards costing this many times the median; 0 = never
+    }
+    
+    @Data
+    public static class RoutingCacheConfig {
+        private long maxEntries = 10_000;
+        private long ttlSeconds = 300;
+    }
+    
+    @Data
+    public static class WriterConfig {
+        private int batchSize = 1000; // Rows per transaction unless the shard sets write-batch-size
+        private int maxRetries = 3; // Retries of a batch after a transient database error
+        private long retryBackoffMs = 200; // Doubled on every retry
+    }
+    
+    @Data
+    public static class MigrationConfig {
+        private int batchSize = 1000; // Rows scanned per keyset batch
+        private int maxRowsPerSecond = 5000; // Copy/delete throttle so foreground queries keep their latency
+        private long cutoverSettleMs = 5000; // Wait after cutover for in-flight source writes before the catch-up pass
+        private long routingPollMs = 10000; // How often each instance picks up cutovers made by other instances
+    }
+    
     // Convenience methods for shard resolution
     public String resolveShardByLocation(String country, String region, String state) {
         if (!enabled) return "default";
@@ -94,15 +174,6 @@ public class ShardConfig {
             .orElse("shard_default");
     }
     
-    public String resolveShardByHash(String profileId) {
-        if (!enabled) return "default";
-        
-        // Simple hash-based distribution
-        int hash = Math.abs(profileId.hashCode());
-        int shardIndex = hash % defaultShardCount;
-        return "shard_" + (shardIndex + 1);
-    }
-    
     public List<String> getAllActiveShardIds() {
         return shards.stream()
             .filter(ShardDefinition::isActive)
@@ -0,0 +1,179 @@
+package com.semantictalent.finder.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One Hikari pool per configured shard, built from ShardDefinition.database.
+ * Shard searches and writes look up their JdbcTemplate here instead of using
+ * the primary DataSource. Read replicas get their own pools, keyed
+ * "<shardId>#replica-<n>".
+ */
+@Component
+@Slf4j
+public class ShardDataSourceRouter {
+    
+    public static final String REPLICA_SEPARATOR = "#replica-";
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Value("${spring.datasource.driver-class-name:org.postgresql.Driver}")
+    private String driverClassName;
+    
+    private final Map<String, HikariDataSource> dataSources = new ConcurrentHashMap<>();
+    private final Map<String, JdbcTemplate> jdbcTemplates = new ConcurrentHashMap<>();
+    private final Map<String, TransactionTemplate> transactionTemplates = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> replicaKeys = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        if (!shardConfig.isEnabled() || shardConfig.getShards() == null) {
+            return;
+        }
+        
+        for (ShardConfig.ShardDefinition shard : shardConfig.getShards()) {
+            if (shard.isActive()) {
+                createDataSource(shard);
+            }
+        }
+        log.info("Created connection pools for {} shards: {}", dataSources.size(), dataSources.keySet());
+    }
+    
+    /**
+     * Whether the shard has its own database configured
+     */
+    public boolean hasDataSource(String shardId) {
+        return dataSources.containsKey(shardId);
+    }
+    
+    /**
+     * DataSource for the shard, or null if the shard has no database configured
+     */
+    public DataSource getDataSource(String shardId) {
+        return dataSources.get(shardId);
+    }
+    
+    /**
+     * JdbcTemplate bound to the shard's pool, or null if the shard has no database configured
+     */
+    public JdbcTemplate getJdbcTemplate(String shardId) {
+        return jdbcTemplates.get(shardId);
+    }
+    
+    /**
+     * TransactionTemplate for local transactions on the shard's pool, or null if the shard has no database configured
+     */
+    public TransactionTemplate getTransactionTemplate(String shardId) {
+        return transactionTemplates.get(shardId);
+    }
+    
+    /**
+     * Pool usage per shard for monitoring
+     */
+    public Map<String, Map<String, Object>> getPoolStats() {
+        Map<String, Map<String, Object>> stats = new HashMap<>();
+        dataSources.forEach((shardId, dataSource) -> {
+            Map<String, Object> poolStats = new HashMap<>();
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            poolStats.put("maxConnections", dataSource.getMaximumPoolSize());
+            if (pool != null) {
+                poolStats.put("activeConnections", pool.getActiveConnections());
+                poolStats.put("idleConnections", pool.getIdleConnections());
+                poolStats.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+            }
+            stats.put(shardId, poolStats);
+        });
+        return stats;
+    }
+    
+    @PreDestroy
+    public void close() {
+        dataSources.forEach((shardId, dataSource) -> {
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                log.warn("Failed to close connection pool for shard {}: {}", shardId, e.getMessage());
+            }
+        });
+        dataSources.clear();
+        jdbcTemplates.clear();
+        transactionTemplates.clear();
+        replicaKeys.clear();
+    }
+    
+    /**
+     * Data source keys of the shard's read replicas (usable wherever a shard id is accepted)
+     */
+    public List<String> getReplicaKeys(String shardId) {
+        return replicaKeys.getOrDefault(shardId, List.of());
+    }
+    
+    private void createDataSource(ShardConfig.ShardDefinition shard) {
+        ShardConfig.DatabaseConfig database = shard.getDatabase();
+        if (database == null || database.getUrl() == null || database.getUrl().isBlank()) {
+            log.warn("Shard {} has no database configured", shard.getShardId());
+            return;
+        }
+        createPool(shard.getShardId(), database);
+        
+        if (shard.getReplicas() != null) {
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < shard.getReplicas().size(); i++) {
+                ShardConfig.DatabaseConfig replica = shard.getReplicas().get(i);
+                if (replica.getUrl() == null || replica.getUrl().isBlank()) {
+                    continue;
+                }
+                String key = shard.getShardId() + REPLICA_SEPARATOR + (i + 1);
+                createPool(key, replica);
+                keys.add(key);
+            }
+            replicaKeys.put(shard.getShardId(), List.copyOf(keys));
+        }
+    }
+    
+    private void createPool(String key, ShardConfig.DatabaseConfig database) {
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName(driverClassName);
+        config.setJdbcUrl(database.getUrl());
+        config.setUsername(database.getUsername());
+        config.setPassword(database.getPassword());
+        if (database.getSchema() != null) {
+            config.setSchema(database.getSchema());
+        }
+        
+        config.setMaximumPoolSize(database.getMaxConnections());
+        config.setMinimumIdle(Math.min(database.getMinIdleConnections(), database.getMaxConnections()));
+        config.setConnectionTimeout(database.getConnectionTimeoutMs());
+        config.setIdleTimeout(600000);
+        config.setMaxLifetime(1800000);
+        // Lets the driver turn batched INSERTs into multi-row statements
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        
+        // Don't fail startup when a shard database is down; the health monitor reports it
+        config.setInitializationFailTimeout(-1);
+        config.setPoolName("ShardPool-" + key);
+        
+        HikariDataSource dataSource = new HikariDataSource(config);
+        dataSources.put(key, dataSource);
+        jdbcTemplates.put(key, new JdbcTemplate(dataSource));
+        transactionTemplates.put(key, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+}
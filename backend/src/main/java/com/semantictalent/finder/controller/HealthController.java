@@ -2,9 +2,13 @@ package com.semantictalent.finder.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.web.bind.annotation.*;
-import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.service.ProfileCountService;
 import lombok.extern.slf4j.Slf4j;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,8 +18,13 @@ import java.util.Map;
 @Slf4j
 public class HealthController {
     
+    private static final int DATABASE_PROBE_TIMEOUT_SECONDS = 2;
+    
+    @Autowired
+    private ProfileCountService profileCountService;
+    
     @Autowired
-    private ProfileRepository profileRepository;
+    private JdbcTemplate jdbcTemplate;
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> healthCheck() {
@@ -27,15 +36,16 @@ public class HealthController {
             health.put("timestamp", System.currentTimeMillis());
             health.put("service", "semantic-talent-finder");
             
-            // Database connectivity check
-            Long profileCount = profileRepository.countTotalProfiles();
-            health.put("database", "UP");
+            // Live connectivity probe; the profile count is the cached estimate
+            long profileCount = profileCountService.getEstimate();
+            health.put("database", isDatabaseUp() ? "UP" : "DOWN");
             health.put("profileCount", profileCount);
+            health.put("rowCount", profileCountService.getStats());
             
             log.debug("Health check passed - {} profiles in database", profileCount);
             
             return ResponseEntity.ok(health);
-            
+        
         } catch (Exception e) {
             log.error("Health check failed", e);
             
@@ -53,13 +63,17 @@ public class HealthController {
         
         try {
             // Check if application is ready to serve requests
-            profileRepository.countTotalProfiles();
+            if (!isDatabaseUp()) {
+                readiness.put("status", "NOT_READY");
+                readiness.put("message", "Database is not reachable");
+                return ResponseEntity.ok(readiness);
+            }
             
             readiness.put("status", "READY");
             readiness.put("message", "Application is ready to serve requests");
             
             return ResponseEntity.ok(readiness);
-            
+        
         } catch (Exception e) {
             log.error("Readiness check failed", e);
             
@@ -80,4 +94,21 @@ public class HealthController {
         
         return ResponseEntity.ok(liveness);
     }
+    
+    /**
+     * SELECT 1 against the primary, bounded by a short query timeout
+     */
+    private boolean isDatabaseUp() {
+        try {
+            Boolean up = jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("SELECT 1");
+                ps.setQueryTimeout(DATABASE_PROBE_TIMEOUT_SECONDS);
+                return ps;
+            }, (ResultSetExtractor<Boolean>) ResultSet::next);
+            return Boolean.TRUE.equals(up);
+        } catch (Exception e) {
+            log.warn("Database probe failed: {}", e.getMessage());
+            return false;
+        }
+    }
 }
\ No newline at end of file
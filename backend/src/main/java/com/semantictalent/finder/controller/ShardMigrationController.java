@@ -0,0 +1,114 @@
+package com.semantictalent.finder.controller;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.dto.ShardMigrationRequest;
+import com.semantictalent.finder.entity.ShardMigration;
+import com.semantictalent.finder.service.ShardMigrationService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/shards/migrations")
+@CrossOrigin(origins = "http://localhost:3000")
+@Slf4j
+public class ShardMigrationController {
+    
+    @Autowired
+    private ShardMigrationService shardMigrationService;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    /**
+     * Start moving a bucket range between shard databases
+     * POST /api/shards/migrations
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startMigration(@Valid @RequestBody ShardMigrationRequest request) {
+        try {
+            ShardMigration migration = shardMigrationService.startMigration(
+                request.getSourceShard(), request.getTargetShard(), request.getBucketFrom(), request.getBucketTo());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("migrationId", migration.getId());
+            response.put("status", migration.getStatus());
+            return ResponseEntity.ok(response);
+        
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            log.error("Failed to start shard migration", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "message", "Migration failed to start: " + e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * GET /api/shards/migrations
+     */
+    @GetMapping
+    public ResponseEntity<List<ShardMigration>> getMigrations() {
+        return ResponseEntity.ok(shardMigrationService.getMigrations());
+    }
+    
+    /**
+     * GET /api/shards/migrations/{migrationId}
+     */
+    @GetMapping("/{migrationId}")
+    public ResponseEntity<ShardMigration> getMigration(@PathVariable String migrationId) {
+        ShardMigration migration = shardMigrationService.getMigration(migrationId);
+        return migration != null ? ResponseEntity.ok(migration) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * Stop after the current batch; progress is checkpointed
+     * POST /api/shards/migrations/{migrationId}/pause
+     */
+    @PostMapping("/{migrationId}/pause")
+    public ResponseEntity<Map<String, Object>> pauseMigration(@PathVariable String migrationId) {
+        boolean paused = shardMigrationService.pauseMigration(migrationId);
+        return ResponseEntity.ok(Map.of(
+            "success", paused,
+            "message", paused ? "Migration pausing after current batch" : "Migration not running"
+        ));
+    }
+    
+    /**
+     * POST /api/shards/migrations/{migrationId}/resume
+     */
+    @PostMapping("/{migrationId}/resume")
+    public ResponseEntity<Map<String, Object>> resumeMigration(@PathVariable String migrationId) {
+        boolean resumed = shardMigrationService.resumeMigration(migrationId);
+        return ResponseEntity.ok(Map.of(
+            "success", resumed,
+            "message", resumed ? "Migration resumed from checkpoint" : "Migration not found, running or already completed"
+        ));
+    }
+    
+    /**
+     * Suggested bucket moves for shards approaching capacity
+     * GET /api/shards/migrations/proposals
+     */
+    @GetMapping("/proposals")
+    public ResponseEntity<List<Map<String, Object>>> getProposals() {
+        List<Map<String, Object>> proposals = shardConfig.getAllActiveShardIds().stream()
+            .map(shardMigrationService::proposeMigration)
+            .filter(proposal -> !proposal.isEmpty())
+            .toList();
+        return ResponseEntity.ok(proposals);
+    }
+}
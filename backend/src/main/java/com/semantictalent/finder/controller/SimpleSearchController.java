@@ -1,52 +1,129 @@
 package com.semantictalent.finder.controller;
 
-import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.dto.ProfileCursorPageDto;
+import com.semantictalent.finder.dto.ProfileListItemDto;
 import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.service.ProfileService;
+import com.semantictalent.finder.service.SimpleSearchService;
+import com.semantictalent.finder.service.SimpleSearchService.SubstringField;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import lombok.extern.slf4j.Slf4j;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/simple")
-@CrossOrigin(origins = "http://localhost:3000")
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SimpleSearchController.NEXT_CURSOR_HEADER)
 @Slf4j
 public class SimpleSearchController {
     
+    // Search results stay a plain list; the cursor for the next page, if any, comes in this header
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     @Autowired
     private ProfileRepository profileRepository;
     
+    @Autowired
+    private SimpleSearchService simpleSearchService;
+    
+    @Autowired
+    private ProfileService profileService;
+    
+    @Value("${app.export.timeout-ms:3600000}")
+    private long exportTimeoutMs;
+    
     @GetMapping("/profiles")
-    public ResponseEntity<List<Profile>> getAllProfiles(
+    public ResponseEntity<List<ProfileListItemDto>> getAllProfiles(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "50") int limit) {
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) Integer after) {
         
-        log.info("Getting all profiles - page: {}, limit: {}", page, limit);
+        log.info("Getting all profiles - page: {}, limit: {}, after: {}", page, limit, after);
         
         try {
-            Pageable pageable = PageRequest.of(page, limit);
-            List<Profile> profiles = profileRepository.findAll(pageable).getContent();
-            return ResponseEntity.ok(profiles);
+            int pageSize = simpleSearchService.clampSize(limit);
+            if (after != null) {
+                // Keyset pagination: constant cost per page at any depth
+                return ResponseEntity.ok(profileService.getProfilesAfter(after, pageSize).getProfiles());
+            }
+            Pageable pageable = PageRequest.of(Math.max(0, page), pageSize);
+            return ResponseEntity.ok(profileRepository.findListItems(pageable));
         } catch (Exception e) {
             log.error("Error getting all profiles", e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    @GetMapping("/profiles/seek")
+    public ResponseEntity<ProfileCursorPageDto> getProfilesPage(
+            @RequestParam(defaultValue = "-1") int after,
+            @RequestParam(defaultValue = "50") int limit) {
+        
+        log.debug("Getting profiles after ordinal {} (limit {})", after, limit);
+        
+        try {
+            return ResponseEntity.ok(profileService.getProfilesAfter(after, simpleSearchService.clampSize(limit)));
+        } catch (Exception e) {
+            log.error("Error getting profiles after ordinal {}", after, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Full exports outlive spring.mvc.async.request-timeout, so the stream runs as an async
+     * task with its own timeout (app.export.timeout-ms, 0 = none). On timeout the export stops
+     * before its next batch; the logged ordinal is the last one flushed, to resume from with after.
+     */
+    @GetMapping(value = "/profiles/export", produces = "application/x-ndjson")
+    public WebAsyncTask<Void> exportProfiles(
+            @RequestParam(defaultValue = "-1") int after,
+            @RequestParam(required = false) Long max,
+            HttpServletResponse response) {
+        
+        log.info("Starting NDJSON profile export after ordinal {} (max {})", after, max);
+        
+        long maxProfiles = max != null && max > 0 ? max : Long.MAX_VALUE;
+        AtomicInteger lastFlushed = new AtomicInteger(after);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        response.setContentType("application/x-ndjson");
+        WebAsyncTask<Void> task = new WebAsyncTask<>(exportTimeoutMs, () -> {
+            profileService.exportProfiles(after, maxProfiles, response.getOutputStream(), lastFlushed, cancelled);
+            return null;
+        });
+        task.onTimeout(() -> {
+            cancelled.set(true);
+            log.warn("NDJSON profile export timed out after {}ms; last flushed ordinal {}", exportTimeoutMs, lastFlushed.get());
+            return null;
+        });
+        task.onError(() -> {
+            cancelled.set(true);
+            return null;
+        });
+        return task;
+    }
+    
     @PostMapping("/search")
-    public ResponseEntity<List<Profile>> searchProfiles(@RequestBody Map<String, String> request) {
+    public ResponseEntity<List<ProfileListItemDto>> searchProfiles(
+            @RequestBody Map<String, String> request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
         String query = request.get("query");
         log.info("Simple text search for: {}", query);
         
         try {
-            // Simple text search across multiple fields
-            List<Profile> profiles = profileRepository.findBySearchableContentContainingIgnoreCase(query);
-            log.info("Found {} profiles matching '{}'", profiles.size(), query);
-            return ResponseEntity.ok(profiles);
+            // Keyword search over the stored tsvector column
+            SimpleSearchService.SearchPage page = simpleSearchService.searchKeywords(query, cursor, limit);
+            log.info("Found {} profiles matching '{}'", page.profiles().size(), query);
+            return withCursor(page);
         } catch (Exception e) {
             log.error("Error in simple search", e);
             return ResponseEntity.internalServerError().build();
@@ -54,16 +131,30 @@ public class SimpleSearchController {
     }
     
     @GetMapping("/search/location")
-    public ResponseEntity<List<Profile>> searchByLocation(@RequestParam String location) {
+    public ResponseEntity<List<ProfileListItemDto>> searchByLocation(
+            @RequestParam String location,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
         log.info("Searching profiles by location: {}", location);
-        
+        return substringSearch(SubstringField.LOCATION, location, cursor, limit);
+    }
+    
+    private ResponseEntity<List<ProfileListItemDto>> substringSearch(SubstringField field, String term, String cursor, int limit) {
         try {
-            List<Profile> profiles = profileRepository.findByLocationContainingIgnoreCase(location);
-            log.info("Found {} profiles in location '{}'", profiles.size(), location);
-            return ResponseEntity.ok(profiles);
+            SimpleSearchService.SearchPage page = simpleSearchService.searchSubstring(field, term, cursor, limit);
+            log.info("Found {} profiles with {} matching '{}'", page.profiles().size(), field, term);
+            return withCursor(page);
         } catch (Exception e) {
-            log.error("Error searching by location", e);
+            log.error("Error searching by {}", field, e);
             return ResponseEntity.internalServerError().build();
         }
     }
-}
\ No newline at end of file
+    
+    private static ResponseEntity<List<ProfileListItemDto>> withCursor(SimpleSearchService.SearchPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.profiles());
+    }
+}
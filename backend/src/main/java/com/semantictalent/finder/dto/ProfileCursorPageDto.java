@@ -0,0 +1,17 @@
+package com.semantictalent.finder.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileCursorPageDto {
+    private List<ProfileListItemDto> profiles;
+    private Integer nextCursor;                 // Pass as "after" to fetch the next page
+    private boolean hasMore;
+}
@@ -0,0 +1,43 @@
+package com.semantictalent.finder.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Lightweight profile projection for listing and simple search endpoints
+ * (no embedding or searchable content). Field order matches the JPQL
+ * constructor expression in ProfileRepository.findListItemsByIdIn.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileListItemDto {
+    private UUID id;
+    private Integer ordinal;
+    private String fullName;
+    private String firstName;
+    private String lastName;
+    private String location;
+    private String locality;
+    private String region;
+    private String locationCountry;
+    private String locationContinent;
+    private String linkedinUrl;
+    private String linkedinUsername;
+    private String industry;
+    private String jobTitle;
+    private String metro;
+    private String gender;
+    private Date lastUpdated;
+    private String headline;
+    private String summary;
+    private String companyName;
+    private String[] skills;
+    private String importBatchId;
+    private Date createdAt;
+}
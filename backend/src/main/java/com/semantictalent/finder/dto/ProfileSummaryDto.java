@@ -20,7 +20,8 @@ public class ProfileSummaryDto {
     private String industry;
     private String companyName;
     private String jobTitle;
-    private Double similarityScore;
+    private Double similarityScore;          // Cosine similarity (null when the profile wasn't an ANN match)
+    private Double fusedScore;               // HYBRID only: reciprocal-rank fusion score the results are ordered by
     private Double dataQualityScore;         // Based on data quality analysis
     private List<String> matchingSkills;
     private List<String> allSkills;
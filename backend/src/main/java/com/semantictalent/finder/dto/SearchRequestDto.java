@@ -37,6 +37,9 @@ public class SearchRequestDto {
     private Integer maxYearsExperience;         // Optional filter
     private Double minDataQualityScore;         // Filter by data quality (0.0-1.0)
     
+    @Min(value = 1, message = "Timeout must be at least 1ms")
+    private Integer timeoutMs;                  // Optional latency budget for cross-shard search
+    
     @Builder.Default
     private SearchMode mode = SearchMode.SEMANTIC; // Search type
     
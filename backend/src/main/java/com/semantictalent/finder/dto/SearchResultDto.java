@@ -1,5 +1,7 @@
 package com.semantictalent.finder.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.semantictalent.finder.util.SearchAggregates;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
@@ -22,9 +24,14 @@ public class SearchResultDto {
     private Map<String, Object> aggregations;   // Industry/location/skills breakdown
     private SearchMetadata metadata;
     
+    @JsonIgnore
+    private SearchAggregates partialAggregates; // Full counts behind aggregations/metadata, for merging shard results
+    
     // Sharding support
     private String shardId;
     private Integer shardsQueried;
+    private Map<String, String> skippedShards;  // Shard id -> reason (TIMEOUT, FAILED, UNHEALTHY)
+    private boolean partialResults;             // True if any target shard is missing from the results
     private boolean success;
     private String errorMessage;
     
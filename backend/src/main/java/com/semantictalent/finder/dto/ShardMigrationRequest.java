@@ -0,0 +1,29 @@
+package com.semantictalent.finder.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShardMigrationRequest {
+    @NotBlank
+    private String sourceShard;
+    
+    @NotBlank
+    private String targetShard;
+    
+    @NotNull
+    @Min(0)
+    private Integer bucketFrom;
+    
+    @NotNull
+    @Min(0)
+    private Integer bucketTo;
+}
@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.pgvector.PGvector;
+import com.semantictalent.finder.util.UuidUtils;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 import java.util.Date;
 import java.util.UUID;
 
@@ -15,18 +18,22 @@ import java.util.UUID;
     @Index(name = "idx_profiles_industry", columnList = "industry"),
     @Index(name = "idx_profiles_location_country", columnList = "location_country"),
     @Index(name = "idx_profiles_experience_level", columnList = "experience_level"),
-    @Index(name = "idx_profiles_data_quality", columnList = "data_quality_score"),
-    @Index(name = "idx_profiles_full_text", columnList = "searchable_content")
+    @Index(name = "idx_profiles_data_quality", columnList = "data_quality_score")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Profile {
+public class Profile implements Persistable<UUID> {
+    // Time-ordered UUIDv7 so bulk inserts append to the primary-key B-tree
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     @Column(columnDefinition = "uuid")
     private UUID id;
     
+    // Dense int ordinal (assigned from profile_ordinal_seq) for compact in-memory indexes.
+    // Its sequence, default and unique index are managed by SchemaMigrationService.
+    @Column(name = "ordinal")
+    private Integer ordinal;
+    
     // High-quality fields (0-3% null - based on dataset analysis)
     @Column(name = "full_name", nullable = false, length = 500)
     private String fullName;
@@ -135,12 +142,32 @@ public class Profile {
     @Column(name = "shard_id", length = 50)
     private String shardId;
     
+    // Ids are assigned client-side, so newness can't be inferred from a null id
+    @Transient
+    @JsonIgnore
+    private boolean newProfile = true;
+    
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newProfile;
+    }
+    
     @PrePersist
     protected void onCreate() {
+        if (id == null) {
+            id = UuidUtils.generateV7();
+        }
         createdAt = new Date();
         updatedAt = new Date();
     }
     
+    @PostPersist
+    @PostLoad
+    protected void markPersisted() {
+        newProfile = false;
+    }
+    
     @PreUpdate
     protected void onUpdate() {
         updatedAt = new Date();
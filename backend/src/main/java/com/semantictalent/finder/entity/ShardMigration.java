@@ -0,0 +1,90 @@
+package com.semantictalent.finder.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * One online move of a bucket range from a source shard database to a target shard.
+ * The row doubles as the checkpoint, so a paused or interrupted migration resumes
+ * from lastCopiedId / lastDeletedId instead of starting over.
+ */
+@Entity
+@Table(name = "shard_migrations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardMigration {
+    
+    public enum Status {
+        PENDING, COPYING, CATCHING_UP, CLEANING_UP, COMPLETED, PAUSED, FAILED
+    }
+    
+    @Id
+    @Column(length = 100)
+    private String id;
+    
+    @Column(name = "source_shard", nullable = false, length = 100)
+    private String sourceShard;
+    
+    @Column(name = "target_shard", nullable = false, length = 100)
+    private String targetShard;
+    
+    @Column(name = "bucket_from", nullable = false)
+    private Integer bucketFrom;
+    
+    @Column(name = "bucket_to", nullable = false)
+    private Integer bucketTo;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Status status;
+    
+    // Routing has been switched to the target; from here on reads cover both shards
+    @Column(name = "cut_over", nullable = false)
+    private boolean cutOver;
+    
+    @Column(name = "last_copied_id", columnDefinition = "uuid")
+    private UUID lastCopiedId;
+    
+    @Column(name = "last_deleted_id", columnDefinition = "uuid")
+    private UUID lastDeletedId;
+    
+    @Column(name = "rows_scanned")
+    private Long rowsScanned = 0L;
+    
+    @Column(name = "rows_copied")
+    private Long rowsCopied = 0L;
+    
+    @Column(name = "rows_deleted")
+    private Long rowsDeleted = 0L;
+    
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+    
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+    
+    @Column(name = "updated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+    
+    public boolean covers(int bucket) {
+        return bucket >= bucketFrom && bucket <= bucketTo;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = new Date();
+        updatedAt = createdAt;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = new Date();
+    }
+}
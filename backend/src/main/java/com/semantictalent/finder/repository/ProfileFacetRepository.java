@@ -0,0 +1,124 @@
+package com.semantictalent.finder.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * The profile_facets summary table: one row per (facet, value) with the number of profiles
+ * carrying that value. Kept current by import batches adding their deltas, so filter values
+ * and their counts never require a DISTINCT or GROUP BY over the profiles table.
+ */
+@Repository
+public class ProfileFacetRepository {
+    
+    private static final String UPSERT_COUNT =
+        "INSERT INTO profile_facets (facet, value, profile_count, updated_at) VALUES (?, ?, ?, NOW()) " +
+        "ON CONFLICT (facet, value) DO UPDATE SET profile_count = profile_facets.profile_count + EXCLUDED.profile_count, " +
+        "updated_at = NOW()";
+    
+    private static final String SET_COUNT =
+        "INSERT INTO profile_facets (facet, value, profile_count, updated_at) VALUES (?, ?, ?, NOW()) " +
+        "ON CONFLICT (facet, value) DO UPDATE SET profile_count = EXCLUDED.profile_count, updated_at = NOW()";
+    
+    public record FacetCount(String facet, String value, long count) {}
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public List<FacetCount> findAll() {
+        return jdbcTemplate.query("SELECT facet, value, profile_count FROM profile_facets WHERE profile_count > 0",
+            (rs, rowNum) -> new FacetCount(rs.getString("facet"), rs.getString("value"), rs.getLong("profile_count")));
+    }
+    
+    /**
+     * Add per-value deltas for one facet, in a transaction of its own (callers run after
+     * the import's transaction has committed, when its connection no longer commits)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void addCounts(String facet, Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((value, delta) -> rows.add(new Object[] {facet, value, delta}));
+        jdbcTemplate.batchUpdate(UPSERT_COUNT, rows);
+    }
+    
+    /**
+     * Replace the table's contents with freshly computed counts (facet -> value -> count).
+     * The table is locked against concurrent addCounts until the new counts are committed,
+     * so a batch added meanwhile lands on top of them instead of being wiped.
+     */
+    @Transactional
+    public void replaceAll(Map<String, Map<String, Long>> counts) {
+        jdbcTemplate.execute("LOCK TABLE profile_facets IN SHARE ROW EXCLUSIVE MODE");
+        // Values absent from counts keep a zero row; findAll skips them
+        jdbcTemplate.update("UPDATE profile_facets SET profile_count = 0, updated_at = NOW() WHERE profile_count <> 0");
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((facet, values) -> values.forEach((value, count) -> rows.add(new Object[] {facet, value, count})));
+        jdbcTemplate.batchUpdate(SET_COUNT, rows);
+    }
+    
+    /**
+     * Run work against one connection of the database inside a single REPEATABLE READ
+     * transaction, so every query it makes sees the same snapshot. Nothing is written.
+     */
+    public <T> T inSnapshot(JdbcTemplate jdbc, Function<JdbcTemplate, T> work) {
+        return jdbc.execute((ConnectionCallback<T>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setAutoCommit(false);
+            try {
+                return work.apply(new JdbcTemplate(new SingleConnectionDataSource(connection, true)));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        });
+    }
+    
+    /**
+     * Which of the given profile ids the database's current snapshot can see
+     */
+    public Set<UUID> findVisibleIds(JdbcTemplate jdbc, Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbc.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id FROM profiles WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject("id", UUID.class)));
+    }
+    
+    /**
+     * Profiles per non-null value of a profiles column (one aggregate scan; used to build the table)
+     * @param jdbc Primary or shard database
+     * @param column Column name; must be a trusted constant
+     */
+    public Map<String, Long> countByColumn(JdbcTemplate jdbc, String column) {
+        Map<String, Long> counts = new HashMap<>();
+        jdbc.query("SELECT " + column + ", COUNT(*) FROM profiles WHERE " + column + " IS NOT NULL GROUP BY " + column,
+            rs -> { counts.put(rs.getString(1), rs.getLong(2)); });
+        return counts;
+    }
+}
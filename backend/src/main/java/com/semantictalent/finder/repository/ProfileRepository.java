@@ -1,11 +1,15 @@
 package com.semantictalent.finder.repository;
 
+import com.semantictalent.finder.dto.ProfileListItemDto;
 import com.semantictalent.finder.entity.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.pgvector.PGvector;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +23,22 @@ public interface ProfileRepository extends JpaRepository<Profile, UUID> {
            "LIMIT ?3", nativeQuery = true)
     List<Profile> findSimilarProfiles(PGvector queryEmbedding, Double threshold, Integer limit);
     
+    // Candidate retrieval (ids + scores only) for ranked and fused search modes
+    @Query(value = "SELECT id, (1 - (embedding <=> ?1)) AS score " +
+           "FROM profiles " +
+           "WHERE (1 - (embedding <=> ?1)) > ?2 " +
+           "ORDER BY embedding <=> ?1 " +
+           "LIMIT ?3", nativeQuery = true)
+    List<ScoredProfileId> findSimilarProfileIds(PGvector queryEmbedding, Double threshold, Integer limit);
+    
+    // Uses the stored search_vector column and its GIN index
+    @Query(value = "SELECT id, ts_rank_cd(search_vector, q) AS score " +
+           "FROM profiles, websearch_to_tsquery('english', ?1) q " +
+           "WHERE search_vector @@ q " +
+           "ORDER BY score DESC " +
+           "LIMIT ?2", nativeQuery = true)
+    List<ScoredProfileId> findFullTextProfileIds(String query, Integer limit);
+    
     @Query("SELECT p FROM Profile p WHERE p.industry IN :industries")
     List<Profile> findByIndustries(@Param("industries") List<String> industries);
     
@@ -40,10 +60,92 @@ public interface ProfileRepository extends JpaRepository<Profile, UUID> {
     @Query("SELECT DISTINCT p.experienceLevel FROM Profile p WHERE p.experienceLevel IS NOT NULL ORDER BY p.experienceLevel")
     List<String> findDistinctExperienceLevels();
     
-    // Simple text search methods for non-embedding search
-    List<Profile> findBySearchableContentContainingIgnoreCase(String query);
-    List<Profile> findByLocationContainingIgnoreCase(String location);
-    List<Profile> findByFullNameContainingIgnoreCase(String name);
-    List<Profile> findByJobTitleContainingIgnoreCase(String jobTitle);
-    List<Profile> findByCompanyNameContainingIgnoreCase(String companyName);
+    // Simple text search methods for non-embedding search.
+    // The first :cap matches the index scan yields are ranked (no ORDER BY inside, so no match
+    // beyond the cap is fetched or scored), then paged by keyset on (score DESC, id): a page returns the :size
+    // candidates ranked after the cursor (:afterScore, :afterId), so pages never overlap.
+    // Scores are cast to float8 so the cursor round-trips exactly through a Java double.
+    @Query(value = "SELECT c.id, c.score FROM (" +
+           "SELECT id, ts_rank_cd(search_vector, q)::float8 AS score " +
+           "FROM profiles, websearch_to_tsquery('english', :query) q " +
+           "WHERE search_vector @@ q LIMIT :cap) c " +
+           "WHERE c.score < :afterScore OR (c.score = :afterScore AND c.id > :afterId) " +
+           "ORDER BY c.score DESC, c.id " +
+           "LIMIT :size", nativeQuery = true)
+    List<ScoredProfileId> searchKeywordIds(@Param("query") String query, @Param("cap") int cap,
+                                           @Param("afterScore") double afterScore, @Param("afterId") UUID afterId,
+                                           @Param("size") int size);
+    
+    // Substring lookups below use the pg_trgm GIN indexes (pattern must be pre-escaped for LIKE)
+    @Query(value = "SELECT c.id, c.score FROM (" +
+           "SELECT id, similarity(location, :term)::float8 AS score FROM profiles WHERE location ILIKE :pattern LIMIT :cap) c " +
+           "WHERE c.score < :afterScore OR (c.score = :afterScore AND c.id > :afterId) " +
+           "ORDER BY c.score DESC, c.id " +
+           "LIMIT :size", nativeQuery = true)
+    List<ScoredProfileId> searchLocationIds(@Param("pattern") String pattern, @Param("term") String term, @Param("cap") int cap,
+                                            @Param("afterScore") double afterScore, @Param("afterId") UUID afterId,
+                                            @Param("size") int size);
+    
+    @Query(value = "SELECT c.id, c.score FROM (" +
+           "SELECT id, similarity(full_name, :term)::float8 AS score FROM profiles WHERE full_name ILIKE :pattern LIMIT :cap) c " +
+           "WHERE c.score < :afterScore OR (c.score = :afterScore AND c.id > :afterId) " +
+           "ORDER BY c.score DESC, c.id " +
+           "LIMIT :size", nativeQuery = true)
+    List<ScoredProfileId> searchFullNameIds(@Param("pattern") String pattern, @Param("term") String term, @Param("cap") int cap,
+                                            @Param("afterScore") double afterScore, @Param("afterId") UUID afterId,
+                                            @Param("size") int size);
+    
+    @Query(value = "SELECT c.id, c.score FROM (" +
+           "SELECT id, similarity(job_title, :term)::float8 AS score FROM profiles WHERE job_title ILIKE :pattern LIMIT :cap) c " +
+           "WHERE c.score < :afterScore OR (c.score = :afterScore AND c.id > :afterId) " +
+           "ORDER BY c.score DESC, c.id " +
+           "LIMIT :size", nativeQuery = true)
+    List<ScoredProfileId> searchJobTitleIds(@Param("pattern") String pattern, @Param("term") String term, @Param("cap") int cap,
+                                            @Param("afterScore") double afterScore, @Param("afterId") UUID afterId,
+                                            @Param("size") int size);
+    
+    @Query(value = "SELECT c.id, c.score FROM (" +
+           "SELECT id, similarity(company_name, :term)::float8 AS score FROM profiles WHERE company_name ILIKE :pattern LIMIT :cap) c " +
+           "WHERE c.score < :afterScore OR (c.score = :afterScore AND c.id > :afterId) " +
+           "ORDER BY c.score DESC, c.id " +
+           "LIMIT :size", nativeQuery = true)
+    List<ScoredProfileId> searchCompanyNameIds(@Param("pattern") String pattern, @Param("term") String term, @Param("cap") int cap,
+                                               @Param("afterScore") double afterScore, @Param("afterId") UUID afterId,
+                                               @Param("size") int size);
+    
+    // Projection without embedding/searchable content for list responses
+    String LIST_ITEM_SELECT = "SELECT new com.semantictalent.finder.dto.ProfileListItemDto(" +
+           "p.id, p.ordinal, p.fullName, p.firstName, p.lastName, p.location, p.locality, p.region, " +
+           "p.locationCountry, p.locationContinent, p.linkedinUrl, p.linkedinUsername, p.industry, " +
+           "p.jobTitle, p.metro, p.gender, p.lastUpdated, p.headline, p.summary, p.companyName, " +
+           "p.skills, p.importBatchId, p.createdAt) FROM Profile p ";
+    
+    @Query(LIST_ITEM_SELECT + "WHERE p.id IN :ids")
+    List<ProfileListItemDto> findListItemsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    // Facet columns only, for aggregating candidates that are not loaded in full
+    @Query("SELECT p.id AS id, p.industry AS industry, p.location AS location, p.skills AS skills, " +
+           "p.dataQualityScore AS dataQualityScore FROM Profile p WHERE p.id IN :ids")
+    List<ProfileFacets> findFacetsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    // Keyset (seek) pagination on the unique ordinal index: constant cost per page at any depth
+    @Query(LIST_ITEM_SELECT + "WHERE p.ordinal > :afterOrdinal ORDER BY p.ordinal")
+    List<ProfileListItemDto> findListItemsAfterOrdinal(@Param("afterOrdinal") int afterOrdinal, Limit limit);
+    
+    // Offset pagination, kept for page-number clients; cost grows with the offset
+    @Query(LIST_ITEM_SELECT + "ORDER BY p.ordinal")
+    List<ProfileListItemDto> findListItems(Pageable pageable);
+    
+    interface ScoredProfileId {
+        UUID getId();
+        Double getScore();
+    }
+    
+    interface ProfileFacets {
+        UUID getId();
+        String getIndustry();
+        String getLocation();
+        String[] getSkills();
+        Double getDataQualityScore();
+    }
 }
\ No newline at end of file
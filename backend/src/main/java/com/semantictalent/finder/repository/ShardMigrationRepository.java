@@ -0,0 +1,14 @@
+package com.semantictalent.finder.repository;
+
+import com.semantictalent.finder.entity.ShardMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface ShardMigrationRepository extends JpaRepository<ShardMigration, String> {
+    
+    List<ShardMigration> findByCutOverTrueOrderByCreatedAtAsc();
+    
+    List<ShardMigration> findAllByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,88 @@
+package com.semantictalent.finder.repository;
+
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Cheap health and capacity probes against a shard database. Everything comes from the
+ * catalog (pg_class, pg_stats, replay timestamps), so a probe costs a few index lookups
+ * no matter how many rows the shard holds.
+ */
+@Repository
+public class ShardProbeRepository {
+    
+    private static final String TABLE_STATS =
+        "SELECT c.reltuples::bigint AS estimated_rows, pg_relation_size(c.oid) AS table_bytes, " +
+        "pg_total_relation_size(c.oid) AS total_bytes, " +
+        "(SELECT s.n_distinct FROM pg_stats s WHERE s.schemaname = n.nspname AND s.tablename = c.relname " +
+        "AND s.attname = 'industry') AS industry_distinct " +
+        "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+        "WHERE c.oid = to_regclass(?)";
+    
+    // Null on a primary; on a standby 0 when caught up, else milliseconds since the last replayed transaction
+    private static final String REPLICATION_LAG =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() THEN NULL " +
+        "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+        "ELSE (EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000)::bigint END";
+    
+    /**
+     * Catalog statistics for the profiles table
+     * @param estimatedRows pg_class.reltuples (as of the last ANALYZE/autovacuum; 0 if never analyzed)
+     * @param industryCount Distinct industries estimated by the planner statistics
+     */
+    public record TableStats(long estimatedRows, long tableBytes, long totalBytes, long industryCount) {}
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    /**
+     * Borrow a connection from the shard pool and validate it
+     */
+    public boolean validateConnection(String key, int timeoutSeconds) throws SQLException {
+        DataSource dataSource = shardDataSourceRouter.getDataSource(key);
+        if (dataSource == null) {
+            throw new IllegalStateException("No database configured for " + key);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.isValid(timeoutSeconds);
+        }
+    }
+    
+    /**
+     * Row estimate, sizes and industry cardinality of the profiles table, or null if the table doesn't exist
+     * @param schema Schema holding the table (null for the search path)
+     */
+    public TableStats getTableStats(String key, String schema) {
+        String table = schema != null && !schema.isBlank() ? schema + ".profiles" : "profiles";
+        List<TableStats> stats = jdbc(key).query(TABLE_STATS, (rs, rowNum) -> {
+            long rows = Math.max(0L, rs.getLong("estimated_rows"));
+            double distinct = rs.getDouble("industry_distinct");
+            // Negative n_distinct is a fraction of the row count
+            long industries = distinct < 0 ? Math.round(-distinct * rows) : Math.round(distinct);
+            return new TableStats(rows, rs.getLong("table_bytes"), rs.getLong("total_bytes"), industries);
+        }, table);
+        return stats.isEmpty() ? null : stats.get(0);
+    }
+    
+    /**
+     * Replay lag of a standby in milliseconds, or null if the database is not a standby
+     */
+    public Long getReplicationLagMs(String key) {
+        return jdbc(key).queryForObject(REPLICATION_LAG, Long.class);
+    }
+    
+    private JdbcTemplate jdbc(String key) {
+        JdbcTemplate jdbcTemplate = shardDataSourceRouter.getJdbcTemplate(key);
+        if (jdbcTemplate == null) {
+            throw new IllegalStateException("No database configured for " + key);
+        }
+        return jdbcTemplate;
+    }
+}
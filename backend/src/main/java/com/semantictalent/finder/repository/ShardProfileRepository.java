@@ -0,0 +1,429 @@
+package com.semantictalent.finder.repository;
+
+import com.pgvector.PGvector;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.dto.ProfileSummaryDto;
+import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.util.SearchAggregates;
+import com.semantictalent.finder.util.UuidUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Profile queries and writes against an individual shard database.
+ * Mirrors the native queries in ProfileRepository, but runs them on the
+ * shard's own pool from ShardDataSourceRouter.
+ */
+@Repository
+public class ShardProfileRepository {
+    
+    public static final DoubleSupplier NO_SCORE_FLOOR = () -> Double.NEGATIVE_INFINITY;
+    
+    private static final int CURSOR_FETCH_SIZE = 32;
+    
+    private static final String SUMMARY_COLUMNS =
+        "id, full_name, headline, location, location_country, industry, company_name, job_title, " +
+        "linkedin_url, skills, data_quality_score, years_experience";
+    
+    private static final String INSERT_PROFILE_VALUES =
+        "INSERT INTO profiles (id, ordinal, full_name, first_name, last_name, location, locality, region, " +
+        "location_country, location_continent, linkedin_url, linkedin_username, industry, job_title, metro, " +
+        "gender, last_updated, headline, summary, experience_level, years_experience, company_name, skills, " +
+        "technical_skills, soft_skills, searchable_content, embedding, data_quality_score, completeness_score, " +
+        "created_at, updated_at, import_batch_id, shard_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ";
+    
+    private static final String INSERT_PROFILE = INSERT_PROFILE_VALUES + "ON CONFLICT (id) DO NOTHING";
+    
+    // Migration copy: refresh an existing copy unless the target's row is newer (written there after cutover)
+    private static final String COPY_PROFILE = INSERT_PROFILE_VALUES +
+        "ON CONFLICT (id) DO UPDATE SET full_name = EXCLUDED.full_name, first_name = EXCLUDED.first_name, " +
+        "last_name = EXCLUDED.last_name, location = EXCLUDED.location, locality = EXCLUDED.locality, " +
+        "region = EXCLUDED.region, location_country = EXCLUDED.location_country, " +
+        "location_continent = EXCLUDED.location_continent, linkedin_url = EXCLUDED.linkedin_url, " +
+        "linkedin_username = EXCLUDED.linkedin_username, industry = EXCLUDED.industry, job_title = EXCLUDED.job_title, " +
+        "metro = EXCLUDED.metro, gender = EXCLUDED.gender, last_updated = EXCLUDED.last_updated, " +
+        "headline = EXCLUDED.headline, summary = EXCLUDED.summary, experience_level = EXCLUDED.experience_level, " +
+        "years_experience = EXCLUDED.years_experience, company_name = EXCLUDED.company_name, skills = EXCLUDED.skills, " +
+        "technical_skills = EXCLUDED.technical_skills, soft_skills = EXCLUDED.soft_skills, " +
+        "searchable_content = EXCLUDED.searchable_content, embedding = EXCLUDED.embedding, " +
+        "data_quality_score = EXCLUDED.data_quality_score, completeness_score = EXCLUDED.completeness_score, " +
+        "updated_at = EXCLUDED.updated_at, import_batch_id = EXCLUDED.import_batch_id, shard_id = EXCLUDED.shard_id " +
+        "WHERE profiles.updated_at IS NULL OR profiles.updated_at < EXCLUDED.updated_at";
+    
+    private static final RowMapper<ProfileSummaryDto> SUMMARY_MAPPER = (rs, rowNum) -> {
+        String[] skills = toStringArray(rs.getArray("skills"));
+        Number yearsExperience = (Number) rs.getObject("years_experience");
+        Number dataQuality = (Number) rs.getObject("data_quality_score");
+        
+        return ProfileSummaryDto.builder()
+            .id(rs.getObject("id", UUID.class))
+            .fullName(rs.getString("full_name"))
+            .headline(rs.getString("headline"))
+            .location(rs.getString("location"))
+            .locationCountry(rs.getString("location_country"))
+            .industry(rs.getString("industry"))
+            .companyName(rs.getString("company_name"))
+            .jobTitle(rs.getString("job_title"))
+            .linkedinUrl(rs.getString("linkedin_url"))
+            .matchingSkills(skills != null ? Arrays.asList(skills).subList(0, Math.min(3, skills.length)) : new ArrayList<>())
+            .allSkills(skills != null ? Arrays.asList(skills) : null)
+            .dataQualityScore(dataQuality != null ? dataQuality.doubleValue() : null)
+            .yearsExperience(yearsExperience != null ? yearsExperience.intValue() : null)
+            .similarityScore(rs.getDouble("score"))
+            .build();
+    };
+    
+    private static final String PROFILE_COLUMNS =
+        "id, ordinal, full_name, first_name, last_name, location, locality, region, location_country, " +
+        "location_continent, linkedin_url, linkedin_username, industry, job_title, metro, gender, last_updated, " +
+        "headline, summary, experience_level, years_experience, company_name, skills, technical_skills, " +
+        "soft_skills, searchable_content, embedding::text AS embedding, data_quality_score, completeness_score, " +
+        "created_at, updated_at, import_batch_id, shard_id";
+    
+    private static final RowMapper<Profile> PROFILE_MAPPER = (rs, rowNum) -> {
+        Profile profile = new Profile();
+        profile.setId(rs.getObject("id", UUID.class));
+        profile.setOrdinal((Integer) rs.getObject("ordinal"));
+        profile.setFullName(rs.getString("full_name"));
+        profile.setFirstName(rs.getString("first_name"));
+        profile.setLastName(rs.getString("last_name"));
+        profile.setLocation(rs.getString("location"));
+        profile.setLocality(rs.getString("locality"));
+        profile.setRegion(rs.getString("region"));
+        profile.setLocationCountry(rs.getString("location_country"));
+        profile.setLocationContinent(rs.getString("location_continent"));
+        profile.setLinkedinUrl(rs.getString("linkedin_url"));
+        profile.setLinkedinUsername(rs.getString("linkedin_username"));
+        profile.setIndustry(rs.getString("industry"));
+        profile.setJobTitle(rs.getString("job_title"));
+        profile.setMetro(rs.getString("metro"));
+        profile.setGender(rs.getString("gender"));
+        profile.setLastUpdated(rs.getTimestamp("last_updated"));
+        profile.setHeadline(rs.getString("headline"));
+        profile.setSummary(rs.getString("summary"));
+        profile.setExperienceLevel(rs.getString("experience_level"));
+        profile.setYearsExperience((Integer) rs.getObject("years_experience"));
+        profile.setCompanyName(rs.getString("company_name"));
+        profile.setSkills(toStringArray(rs.getArray("skills")));
+        profile.setTechnicalSkills(toStringArray(rs.getArray("technical_skills")));
+        profile.setSoftSkills(toStringArray(rs.getArray("soft_skills")));
+        profile.setSearchableContent(rs.getString("searchable_content"));
+        String embedding = rs.getString("embedding");
+        profile.setEmbedding(embedding != null ? new PGvector(embedding) : null);
+        profile.setDataQualityScore((Double) rs.getObject("data_quality_score"));
+        profile.setCompletenessScore((Double) rs.getObject("completeness_score"));
+        profile.setCreatedAt(rs.getTimestamp("created_at"));
+        profile.setUpdatedAt(rs.getTimestamp("updated_at"));
+        profile.setImportBatchId(rs.getString("import_batch_id"));
+        profile.setShardId(rs.getString("shard_id"));
+        profile.setNewProfile(false);
+        return profile;
+    };
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    /**
+     * Vector similarity search on the shard, best match first
+     */
+    public List<ProfileSummaryDto> findSimilarProfiles(String shardId, PGvector queryEmbedding, Double threshold,
+                                                       int limit, long timeoutMs) {
+        return findSimilarProfiles(shardId, queryEmbedding, threshold, limit, timeoutMs, NO_SCORE_FLOOR, null);
+    }
+    
+    /**
+     * Vector similarity search that only returns rows above the live score floor
+     * (the coordinator's current global k-th score)
+     * @param candidates If not null, every candidate row is added to it, including rows the floor
+     *                   drops; the floor then no longer narrows or ends the read early
+     */
+    public List<ProfileSummaryDto> findSimilarProfiles(String shardId, PGvector queryEmbedding, Double threshold,
+                                                       int limit, long timeoutMs, DoubleSupplier scoreFloor,
+                                                       SearchAggregates candidates) {
+        double minScore = threshold != null ? threshold : 0.0;
+        if (candidates == null) {
+            minScore = Math.max(minScore, finiteFloor(scoreFloor, -1.0));
+        }
+        return querySummaries(shardId, timeoutMs, scoreFloor, candidates,
+            "SELECT " + SUMMARY_COLUMNS + ", (1 - (embedding <=> ?)) AS score " +
+            "FROM profiles " +
+            "WHERE (1 - (embedding <=> ?)) > ? " +
+            "ORDER BY embedding <=> ? " +
+            "LIMIT ?",
+            queryEmbedding, queryEmbedding, minScore, queryEmbedding, limit);
+    }
+    
+    /**
+     * Keyword search on the shard's search_vector column, best rank first
+     */
+    public List<ProfileSummaryDto> findFullTextProfiles(String shardId, String query, int limit, long timeoutMs) {
+        return findFullTextProfiles(shardId, query, limit, timeoutMs, NO_SCORE_FLOOR, null);
+    }
+    
+    /**
+     * Keyword search that only returns rows ranked above the live score floor
+     * @param candidates As for findSimilarProfiles: every candidate row is added to it if not null
+     */
+    public List<ProfileSummaryDto> findFullTextProfiles(String shardId, String query, int limit, long timeoutMs,
+                                                        DoubleSupplier scoreFloor, SearchAggregates candidates) {
+        return querySummaries(shardId, timeoutMs, scoreFloor, candidates,
+            "SELECT * FROM (" +
+            "SELECT " + SUMMARY_COLUMNS + ", ts_rank_cd(search_vector, q) AS score " +
+            "FROM profiles, websearch_to_tsquery('english', ?) q " +
+            "WHERE search_vector @@ q) ranked " +
+            "WHERE score >= ? " +
+            "ORDER BY score DESC " +
+            "LIMIT ?",
+            query, candidates == null ? finiteFloor(scoreFloor, 0.0) : 0.0, limit);
+    }
+    
+    /**
+     * Batch insert profiles into the shard database; existing ids are left untouched
+     * @return Number of rows inserted
+     */
+    public int saveAll(String shardId, List<Profile> profiles) {
+        if (profiles.isEmpty()) {
+            return 0;
+        }
+        
+        Date now = new Date();
+        for (Profile profile : profiles) {
+            if (profile.getId() == null) {
+                profile.setId(UuidUtils.generateV7());
+            }
+            if (profile.getCreatedAt() == null) {
+                profile.setCreatedAt(now);
+            }
+            profile.setUpdatedAt(now);
+        }
+        
+        return batchWrite(shardId, INSERT_PROFILE, profiles);
+    }
+    
+    /**
+     * Write copies of rows read from another shard, keeping their timestamps. An existing copy
+     * is overwritten only if it is older than the row being copied.
+     * @return Number of rows inserted or refreshed
+     */
+    public int copyAll(String shardId, List<Profile> profiles) {
+        if (profiles.isEmpty()) {
+            return 0;
+        }
+        return batchWrite(shardId, COPY_PROFILE, profiles);
+    }
+    
+    private int batchWrite(String shardId, String sql, List<Profile> profiles) {
+        int[] counts = jdbc(shardId).batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindProfile(ps, profiles.get(i));
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return profiles.size();
+            }
+        });
+        
+        int written = 0;
+        for (int count : counts) {
+            // The driver may report SUCCESS_NO_INFO (-2) for rewritten batches
+            written += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return written;
+    }
+    
+    /**
+     * Next page of profile keys (id, linkedin_url and updated_at only) in id order, for scanning a shard in batches
+     * @param afterId Exclusive keyset cursor; null starts from the beginning
+     */
+    public List<Profile> findKeysAfter(String shardId, UUID afterId, int limit) {
+        RowMapper<Profile> keyMapper = (rs, rowNum) -> {
+            Profile profile = new Profile();
+            profile.setId(rs.getObject("id", UUID.class));
+            profile.setLinkedinUrl(rs.getString("linkedin_url"));
+            profile.setUpdatedAt(rs.getTimestamp("updated_at"));
+            return profile;
+        };
+        if (afterId == null) {
+            return jdbc(shardId).query("SELECT id, linkedin_url, updated_at FROM profiles ORDER BY id LIMIT ?",
+                keyMapper, limit);
+        }
+        return jdbc(shardId).query("SELECT id, linkedin_url, updated_at FROM profiles WHERE id > ? ORDER BY id LIMIT ?",
+            keyMapper, afterId, limit);
+    }
+    
+    /**
+     * Full profile rows for the given ids
+     */
+    public List<Profile> findAllByIds(String shardId, List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbc(shardId).query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT " + PROFILE_COLUMNS + " FROM profiles WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, PROFILE_MAPPER);
+    }
+    
+    /**
+     * updated_at of those of the given ids that exist on the shard
+     */
+    public Map<UUID, Timestamp> findUpdatedAt(String shardId, List<UUID> ids) {
+        Map<UUID, Timestamp> updatedAt = new HashMap<>();
+        if (ids.isEmpty()) {
+            return updatedAt;
+        }
+        jdbc(shardId).query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT id, updated_at FROM profiles WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> updatedAt.put(rs.getObject("id", UUID.class), rs.getTimestamp("updated_at")));
+        return updatedAt;
+    }
+    
+    /**
+     * Delete the given ids from the shard
+     * @return Number of rows deleted
+     */
+    public int deleteByIds(String shardId, List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbc(shardId).update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("DELETE FROM profiles WHERE id = ANY(?)");
+            ps.setArray(1, connection.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        });
+    }
+    
+    /**
+     * Run a ranked summary query with a statement timeout, so a cancelled shard search
+     * also stops on the database. JDBC timeouts are whole seconds; the coordinator
+     * deadline enforces the finer-grained budget. A timeout of 0 means none.
+     * Rows are fetched through a cursor in small batches and arrive best first, so the first
+     * row that can no longer beat the score floor ends the result. Without candidates reading
+     * stops there; with them the rest is still read and only added to candidates.
+     */
+    private List<ProfileSummaryDto> querySummaries(String shardId, long timeoutMs, DoubleSupplier scoreFloor,
+                                                   SearchAggregates candidates, String sql, Object... args) {
+        return jdbc(shardId).query(connection -> {
+            // PostgreSQL only uses a cursor for fetch size outside autocommit; the pool resets it on return
+            connection.setAutoCommit(false);
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(CURSOR_FETCH_SIZE);
+            if (timeoutMs > 0) {
+                ps.setQueryTimeout((int) Math.max(1, (timeoutMs + 999) / 1000));
+            }
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, (ResultSetExtractor<List<ProfileSummaryDto>>) rs -> {
+            List<ProfileSummaryDto> profiles = new ArrayList<>();
+            boolean belowFloor = false;
+            while (rs.next()) {
+                ProfileSummaryDto profile = SUMMARY_MAPPER.mapRow(rs, profiles.size());
+                if (candidates != null) {
+                    candidates.add(profile.getIndustry(), profile.getLocation(), profile.getAllSkills(),
+                        profile.getSimilarityScore(), profile.getDataQualityScore());
+                }
+                belowFloor = belowFloor || profile.getSimilarityScore() <= scoreFloor.getAsDouble();
+                if (!belowFloor) {
+                    profiles.add(profile);
+                } else if (candidates == null) {
+                    break;
+                }
+            }
+            return profiles;
+        });
+    }
+    
+    private static double finiteFloor(DoubleSupplier scoreFloor, double fallback) {
+        double floor = scoreFloor.getAsDouble();
+        return Double.isFinite(floor) ? Math.max(floor, fallback) : fallback;
+    }
+    
+    private JdbcTemplate jdbc(String shardId) {
+        JdbcTemplate jdbcTemplate = shardDataSourceRouter.getJdbcTemplate(shardId);
+        if (jdbcTemplate == null) {
+            throw new IllegalStateException("No database configured for shard " + shardId);
+        }
+        return jdbcTemplate;
+    }
+    
+    private static void bindProfile(PreparedStatement ps, Profile profile) throws SQLException {
+        Connection connection = ps.getConnection();
+        int i = 1;
+        ps.setObject(i++, profile.getId());
+        ps.setObject(i++, profile.getOrdinal(), Types.INTEGER);
+        ps.setString(i++, profile.getFullName());
+        ps.setString(i++, profile.getFirstName());
+        ps.setString(i++, profile.getLastName());
+        ps.setString(i++, profile.getLocation());
+        ps.setString(i++, profile.getLocality());
+        ps.setString(i++, profile.getRegion());
+        ps.setString(i++, profile.getLocationCountry());
+        ps.setString(i++, profile.getLocationContinent());
+        ps.setString(i++, profile.getLinkedinUrl());
+        ps.setString(i++, profile.getLinkedinUsername());
+        ps.setString(i++, profile.getIndustry());
+        ps.setString(i++, profile.getJobTitle());
+        ps.setString(i++, profile.getMetro());
+        ps.setString(i++, profile.getGender());
+        ps.setTimestamp(i++, toTimestamp(profile.getLastUpdated()));
+        ps.setString(i++, profile.getHeadline());
+        ps.setString(i++, profile.getSummary());
+        ps.setString(i++, profile.getExperienceLevel());
+        ps.setObject(i++, profile.getYearsExperience(), Types.INTEGER);
+        ps.setString(i++, profile.getCompanyName());
+        ps.setArray(i++, toSqlArray(connection, profile.getSkills()));
+        ps.setArray(i++, toSqlArray(connection, profile.getTechnicalSkills()));
+        ps.setArray(i++, toSqlArray(connection, profile.getSoftSkills()));
+        ps.setString(i++, profile.getSearchableContent());
+        ps.setObject(i++, profile.getEmbedding());
+        ps.setObject(i++, profile.getDataQualityScore(), Types.DOUBLE);
+        ps.setObject(i++, profile.getCompletenessScore(), Types.DOUBLE);
+        ps.setTimestamp(i++, toTimestamp(profile.getCreatedAt()));
+        ps.setTimestamp(i++, toTimestamp(profile.getUpdatedAt()));
+        ps.setString(i++, profile.getImportBatchId());
+        ps.setString(i, profile.getShardId());
+    }
+    
+    private static Array toSqlArray(Connection connection, String[] values) throws SQLException {
+        return values != null ? connection.createArrayOf("text", values) : null;
+    }
+    
+    private static Timestamp toTimestamp(Date date) {
+        // Keep a Timestamp read from the database as is, microseconds included
+        if (date instanceof Timestamp timestamp) {
+            return timestamp;
+        }
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+    
+    private static String[] toStringArray(Array array) throws SQLException {
+        return array != null ? (String[]) array.getArray() : null;
+    }
+}
@@ -0,0 +1,177 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load-aware choice between the databases that can serve a shard's reads (the primary
+ * and its replicas). Each database keeps a peak-sensitive EWMA of its latency, an EWMA
+ * of its error rate and its in-flight request count; reads go to the cheaper of two
+ * randomly drawn candidates (power of two choices), which steers load away from hot or
+ * failing databases without herding every request onto the single best one.
+ * Statistics decay while a database is idle, so one that was avoided is retried later.
+ */
+@Service
+@Slf4j
+public class AdaptiveShardSelector {
+    
+    private static final double ERROR_ALPHA = 0.1;
+    private static final double MAX_ERROR_RATE = 0.95;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    /**
+     * Decayed averages of one database, replaced wholesale on every update
+     */
+    private record Ewma(double latencyMs, double errorRate, long updatedNanos) {}
+    
+    private static final class Endpoint {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicReference<Ewma> ewma = new AtomicReference<>(new Ewma(0.0, 0.0, System.nanoTime()));
+    }
+    
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    
+    /**
+     * Pick the database to read from; the first candidate when selection is disabled
+     */
+    public String choose(List<String> candidates) {
+        if (candidates.size() == 1 || !shardConfig.getSelection().isEnabled()) {
+            return candidates.get(0);
+        }
+        
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        String a = candidates.get(first);
+        String b = candidates.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+    
+    /**
+     * Mark a request to the database as started; must be paired with complete()
+     */
+    public void begin(String key) {
+        endpoint(key).inFlight.incrementAndGet();
+    }
+    
+    public void complete(String key, long latencyMs, boolean success) {
+        Endpoint endpoint = endpoint(key);
+        endpoint.inFlight.decrementAndGet();
+        
+        long decayNanos = Math.max(1L, shardConfig.getSelection().getDecayMs()) * 1_000_000L;
+        endpoint.ewma.updateAndGet(current -> {
+            long now = System.nanoTime();
+            double weight = Math.exp(-(double) (now - current.updatedNanos()) / decayNanos);
+            // Peak-sensitive: a slow response raises the average at once, fast ones pull it down gradually
+            double latency = latencyMs > current.latencyMs()
+                ? latencyMs
+                : current.latencyMs() * weight + latencyMs * (1.0 - weight);
+            double errorRate = current.errorRate() * weight * (1.0 - ERROR_ALPHA) + (success ? 0.0 : ERROR_ALPHA);
+            return new Ewma(latency, errorRate, now);
+        });
+    }
+    
+    /**
+     * Expected cost of sending one more request: latency scaled by queue depth and error rate.
+     * A database nothing is known about costs least, so it gets probed.
+     */
+    public double cost(String key) {
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            return 0.0;
+        }
+        Ewma ewma = decayed(endpoint);
+        return (ewma.latencyMs() + 1.0) * (endpoint.inFlight.get() + 1)
+            / (1.0 - Math.min(ewma.errorRate(), MAX_ERROR_RATE));
+    }
+    
+    /**
+     * Cost of the cheapest database serving the shard
+     */
+    public double shardCost(String shardId) {
+        double best = cost(shardId);
+        for (String replica : shardDataSourceRouter.getReplicaKeys(shardId)) {
+            best = Math.min(best, cost(replica));
+        }
+        return best;
+    }
+    
+    /**
+     * Low-priority shards (priority above 1) to leave out of a fan-out because even their
+     * cheapest database costs more than selection.shedFactor times the median shard; the
+     * caller reports them as skipped. Nothing is shed from single-shard searches. Off by
+     * default: a shed shard's matches are missing from the results.
+     */
+    public List<String> selectShedShards(List<String> shardIds) {
+        double shedFactor = shardConfig.getSelection().getShedFactor();
+        if (!shardConfig.getSelection().isEnabled() || shedFactor <= 0 || shardIds.size() < 2) {
+            return List.of();
+        }
+        
+        Map<String, Double> costs = new LinkedHashMap<>();
+        shardIds.forEach(shardId -> costs.put(shardId, shardCost(shardId)));
+        double median = costs.values().stream().mapToDouble(Double::doubleValue).sorted()
+            .skip((costs.size() - 1) / 2).findFirst().orElse(0.0);
+        if (median <= 0) {
+            return List.of();
+        }
+        
+        List<String> shed = new ArrayList<>();
+        costs.forEach((shardId, shardCost) -> {
+            ShardConfig.ShardDefinition definition = shardConfig.getShardDefinition(shardId);
+            if (definition != null && definition.getPriority() > 1 && shardCost > shedFactor * median) {
+                shed.add(shardId);
+            }
+        });
+        if (!shed.isEmpty()) {
+            log.debug("Shedding low-priority shards {} (median cost {})", shed, median);
+        }
+        return shed;
+    }
+    
+    public Map<String, Object> getSelectionStats() {
+        Map<String, Object> stats = new HashMap<>();
+        endpoints.forEach((key, endpoint) -> {
+            Ewma ewma = decayed(endpoint);
+            Map<String, Object> endpointStats = new HashMap<>();
+            endpointStats.put("latencyEwmaMs", ewma.latencyMs());
+            endpointStats.put("errorRate", ewma.errorRate());
+            endpointStats.put("inFlight", endpoint.inFlight.get());
+            endpointStats.put("cost", cost(key));
+            stats.put(key, endpointStats);
+        });
+        return stats;
+    }
+    
+    private Endpoint endpoint(String key) {
+        return endpoints.computeIfAbsent(key, k -> new Endpoint());
+    }
+    
+    private Ewma decayed(Endpoint endpoint) {
+        Ewma ewma = endpoint.ewma.get();
+        long decayNanos = Math.max(1L, shardConfig.getSelection().getDecayMs()) * 1_000_000L;
+        double weight = Math.exp(-(double) (System.nanoTime() - ewma.updatedNanos()) / decayNanos);
+        return new Ewma(ewma.latencyMs() * weight, ewma.errorRate() * weight, ewma.updatedNanos());
+    }
+}
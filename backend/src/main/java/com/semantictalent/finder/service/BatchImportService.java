@@ -5,16 +5,17 @@ import com.semantictalent.finder.dto.BatchImportResponse;
 import com.semantictalent.finder.dto.ProfileImportDto;
 import com.semantictalent.finder.entity.Profile;
 import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.util.UuidUtils;
 import com.pgvector.PGvector;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
@@ -27,6 +28,12 @@ public class BatchImportService {
     @Autowired
     private EmbeddingService embeddingService;
 
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Store batch processing status
     private final ConcurrentHashMap<String, BatchImportResponse> batchStatus = new ConcurrentHashMap<>();
 
@@ -61,8 +68,10 @@ public class BatchImportService {
             
             // Batch save all profiles
             if (!profiles.isEmpty()) {
-                profileRepository.saveAll(profiles);
+                profileOrdinalService.assignOrdinals(profiles);
+                profileOrdinalService.registerAll(profileRepository.saveAll(profiles));
                 log.info("Saved {} profiles to database for batch {}", profiles.size(), batchId);
+                eventPublisher.publishEvent(new ProfilesImportedEvent(batchId, profiles));
             }
             
             response.setSuccess(true);
@@ -83,7 +92,7 @@ public class BatchImportService {
     private Profile convertToProfile(ProfileImportDto dto, String batchId) {
         Profile profile = new Profile();
         
-        profile.setId(UUID.randomUUID());
+        profile.setId(UuidUtils.generateV7());
         profile.setFullName(dto.getFullName());
         profile.setFirstName(dto.getFirstName());
         profile.setLastName(dto.getLastName());
@@ -7,6 +7,7 @@ import com.pgvector.PGvector;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +36,12 @@ public class DataImportService {
     @Autowired
     private SkillsAnalysisService skillsService;
     
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Async
     @Transactional
     public CompletableFuture<ImportStatusDto> processProfilesBatch(List<Profile> profiles, String filename) {
@@ -55,7 +62,7 @@ public class DataImportService {
                 
                 // Process in chunks to manage memory
                 if (enrichedProfiles.size() >= batchSize) {
-                    saveBatch(enrichedProfiles);
+                    saveBatch(enrichedProfiles, batchId);
                     enrichedProfiles.clear();
                     log.info("Processed chunk: {} records for batch {}", processedCount, batchId);
                 }
@@ -63,7 +70,7 @@ public class DataImportService {
             
             // Process remaining records
             if (!enrichedProfiles.isEmpty()) {
-                saveBatch(enrichedProfiles);
+                saveBatch(enrichedProfiles, batchId);
             }
             
             long executionTime = System.currentTimeMillis() - startTime;
@@ -215,10 +222,12 @@ public class DataImportService {
     }
     
     @Transactional
-    private void saveBatch(List<Profile> profiles) {
+    private void saveBatch(List<Profile> profiles, String batchId) {
         try {
-            profileRepository.saveAll(profiles);
+            profileOrdinalService.assignOrdinals(profiles);
+            profileOrdinalService.registerAll(profileRepository.saveAll(profiles));
             log.debug("Saved batch of {} profiles", profiles.size());
+            eventPublisher.publishEvent(new ProfilesImportedEvent(batchId, List.copyOf(profiles)));
         } catch (Exception e) {
             log.error("Error saving batch of {} profiles: {}", profiles.size(), e.getMessage());
             throw e;
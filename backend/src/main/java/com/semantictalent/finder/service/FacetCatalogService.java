@@ -0,0 +1,305 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.repository.ProfileFacetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory catalogue of filter values (industries, locations, countries, experience levels)
+ * with the number of profiles carrying each. Loaded at startup from the profile_facets
+ * summary table (built once with one GROUP BY per column over the primary and shard
+ * databases if it is empty) and then kept current by adding every committed import batch,
+ * in memory and in the table, so the filters endpoint never scans profiles.
+ */
+@Service
+@Slf4j
+public class FacetCatalogService {
+    
+    public enum Facet {
+        INDUSTRY("industries", "industry", Profile::getIndustry),
+        LOCATION("locations", "location", Profile::getLocation),
+        COUNTRY("countries", "location_country", Profile::getLocationCountry),
+        EXPERIENCE_LEVEL("experienceLevels", "experience_level", Profile::getExperienceLevel);
+        
+        private final String filterName;
+        private final String column;
+        private final Function<Profile, String> extractor;
+        
+        Facet(String filterName, String column, Function<Profile, String> extractor) {
+            this.filterName = filterName;
+            this.column = column;
+            this.extractor = extractor;
+        }
+        
+        public String getFilterName() {
+            return filterName;
+        }
+    }
+    
+    public record FacetValue(String value, long count) {}
+    
+    private static final Comparator<FacetValue> BY_COUNT =
+        Comparator.comparingLong(FacetValue::count).reversed().thenComparing(FacetValue::value);
+    
+    @Autowired
+    private ProfileFacetRepository profileFacetRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    @Qualifier("dataImportTaskExecutor")
+    private Executor dataImportExecutor;
+    
+    // Replaced wholesale by load() and rebuild(); deltas are added in place, under deltaLock
+    private volatile Map<Facet, ConcurrentHashMap<String, AtomicLong>> counts = emptyCounts();
+    
+    // Serialises deltas (in memory and in profile_facets) with the swap at the end of load() and rebuild()
+    private final Object deltaLock = new Object();
+    
+    // Profiles imported while a rebuild is counting, guarded by deltaLock; null when no rebuild is running
+    private List<Profile> rebuildBuffer;
+    
+    // Sorted views, rebuilt on the first read after the counts changed
+    private volatile Map<Facet, List<FacetValue>> sortedView = Map.of();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean loaded;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            synchronized (deltaLock) {
+                List<ProfileFacetRepository.FacetCount> rows = profileFacetRepository.findAll();
+                if (rows.isEmpty()) {
+                    log.info("Facet catalogue is empty; building it in the background");
+                    dataImportExecutor.execute(this::rebuild);
+                    return;
+                }
+                Map<Facet, ConcurrentHashMap<String, AtomicLong>> loadedCounts = emptyCounts();
+                for (ProfileFacetRepository.FacetCount row : rows) {
+                    Facet facet = byFilterName(row.facet());
+                    if (facet != null) {
+                        loadedCounts.get(facet).computeIfAbsent(row.value(), k -> new AtomicLong()).addAndGet(row.count());
+                    }
+                }
+                counts = loadedCounts;
+                log.info("Loaded facet catalogue: {} values", rows.size());
+            }
+            dirty.set(true);
+            loaded = true;
+        } catch (Exception e) {
+            log.error("Failed to load facet catalogue", e);
+        }
+    }
+    
+    /**
+     * Recount every facet from the profiles tables (one aggregate scan per column and database)
+     * and replace the catalogue. Only needed to seed it or to repair drift.
+     * Each database is counted in one snapshot. Batches imported meanwhile are buffered and
+     * added afterwards, except profiles that snapshot already saw, so every profile is
+     * counted once.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            List<JdbcTemplate> databases = new ArrayList<>(List.of(jdbcTemplate));
+            if (shardConfig.isEnabled() && shardConfig.getShards() != null) {
+                for (String shardId : shardConfig.getAllActiveShardIds()) {
+                    JdbcTemplate shard = shardDataSourceRouter.getJdbcTemplate(shardId);
+                    if (shard != null) {
+                        databases.add(shard);
+                    }
+                }
+            }
+            
+            synchronized (deltaLock) {
+                rebuildBuffer = new ArrayList<>();
+            }
+            Map<String, Map<String, Long>> fresh = new HashMap<>();
+            for (Facet facet : Facet.values()) {
+                fresh.put(facet.filterName, new HashMap<>());
+            }
+            Set<UUID> alreadyCounted = new HashSet<>();
+            for (JdbcTemplate database : databases) {
+                try {
+                    profileFacetRepository.inSnapshot(database, snapshot -> {
+                        for (Facet facet : Facet.values()) {
+                            profileFacetRepository.countByColumn(snapshot, facet.column)
+                                .forEach((value, count) -> fresh.get(facet.filterName).merge(value, count, Long::sum));
+                        }
+                        alreadyCounted.addAll(profileFacetRepository.findVisibleIds(snapshot, bufferedIds()));
+                        return null;
+                    });
+                } catch (Exception e) {
+                    log.warn("Could not count facets on one database: {}", e.getMessage());
+                }
+            }
+            
+            synchronized (deltaLock) {
+                for (Profile profile : rebuildBuffer) {
+                    if (profile.getId() == null || !alreadyCounted.contains(profile.getId())) {
+                        for (Facet facet : Facet.values()) {
+                            String value = facet.extractor.apply(profile);
+                            if (value != null) {
+                                fresh.get(facet.filterName).merge(value, 1L, Long::sum);
+                            }
+                        }
+                    }
+                }
+                rebuildBuffer = null;
+                profileFacetRepository.replaceAll(fresh);
+                
+                Map<Facet, ConcurrentHashMap<String, AtomicLong>> rebuilt = emptyCounts();
+                for (Facet facet : Facet.values()) {
+                    fresh.get(facet.filterName).forEach((value, count) -> rebuilt.get(facet).put(value, new AtomicLong(count)));
+                }
+                counts = rebuilt;
+            }
+            dirty.set(true);
+            loaded = true;
+            log.info("Rebuilt facet catalogue from {} databases in {}ms", databases.size(), System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Failed to rebuild facet catalogue", e);
+        } finally {
+            synchronized (deltaLock) {
+                rebuildBuffer = null;
+            }
+            rebuilding.set(false);
+        }
+    }
+    
+    /**
+     * Add a committed import batch to the catalogue and the summary table
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfilesImported(ProfilesImportedEvent event) {
+        Map<Facet, Map<String, Long>> facetDeltas = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            Map<String, Long> deltas = new HashMap<>();
+            for (Profile profile : event.profiles()) {
+                String value = facet.extractor.apply(profile);
+                if (value != null) {
+                    deltas.merge(value, 1L, Long::sum);
+                }
+            }
+            if (!deltas.isEmpty()) {
+                facetDeltas.put(facet, deltas);
+            }
+        }
+        
+        synchronized (deltaLock) {
+            Map<Facet, ConcurrentHashMap<String, AtomicLong>> current = counts;
+            facetDeltas.forEach((facet, deltas) -> {
+                ConcurrentHashMap<String, AtomicLong> facetCounts = current.get(facet);
+                deltas.forEach((value, delta) -> facetCounts.computeIfAbsent(value, k -> new AtomicLong()).addAndGet(delta));
+                try {
+                    profileFacetRepository.addCounts(facet.filterName, deltas);
+                } catch (Exception e) {
+                    log.warn("Failed to persist {} facet counts for batch {}: {}", facet.filterName, event.batchId(), e.getMessage());
+                }
+            });
+            if (rebuildBuffer != null) {
+                rebuildBuffer.addAll(event.profiles());
+            }
+        }
+        dirty.set(true);
+    }
+    
+    /**
+     * Filter values per facet, most common first
+     */
+    public Map<String, List<String>> getFilterValues() {
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        sortedView().forEach((facet, values) -> filters.put(facet.filterName, values.stream().map(FacetValue::value).toList()));
+        return filters;
+    }
+    
+    /**
+     * The n most common values of a facet with their profile counts
+     */
+    public List<FacetValue> getTopValues(Facet facet, int n) {
+        List<FacetValue> values = sortedView().getOrDefault(facet, List.of());
+        return values.subList(0, Math.min(n, values.size()));
+    }
+    
+    public int getDistinctCount(Facet facet) {
+        return counts.get(facet).size();
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    private Map<Facet, List<FacetValue>> sortedView() {
+        if (dirty.compareAndSet(true, false)) {
+            Map<Facet, List<FacetValue>> view = new EnumMap<>(Facet.class);
+            counts.forEach((facet, facetCounts) -> view.put(facet, facetCounts.entrySet().stream()
+                .filter(entry -> entry.getValue().get() > 0)
+                .map(entry -> new FacetValue(entry.getKey(), entry.getValue().get()))
+                .sorted(BY_COUNT)
+                .toList()));
+            sortedView = view;
+        }
+        return sortedView;
+    }
+    
+    private List<UUID> bufferedIds() {
+        synchronized (deltaLock) {
+            return rebuildBuffer == null ? List.of() : rebuildBuffer.stream().map(Profile::getId).filter(Objects::nonNull).toList();
+        }
+    }
+    
+    private static Map<Facet, ConcurrentHashMap<String, AtomicLong>> emptyCounts() {
+        Map<Facet, ConcurrentHashMap<String, AtomicLong>> empty = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            empty.put(facet, new ConcurrentHashMap<>());
+        }
+        return empty;
+    }
+    
+    private static Facet byFilterName(String filterName) {
+        for (Facet facet : Facet.values()) {
+            if (facet.filterName.equals(filterName)) {
+                return facet;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.util.AhoCorasickMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Set;
+
+/**
+ * Finds the shards a search query is about from the places it mentions.
+ * One Aho-Corasick automaton over every state (code and name), metro and country in
+ * ShardConfig is built at startup, so a query is scanned once regardless of how many
+ * locations are configured.
+ */
+@Service
+@Slf4j
+public class GeographicHintExtractor {
+    
+    private static final Map<String, String> US_STATE_NAMES = Map.ofEntries(
+        Map.entry("AL", "Alabama"), Map.entry("AK", "Alaska"), Map.entry("AZ", "Arizona"),
+        Map.entry("AR", "Arkansas"), Map.entry("CA", "California"), Map.entry("CO", "Colorado"),
+        Map.entry("CT", "Connecticut"), Map.entry("DE", "Delaware"), Map.entry("DC", "District of Columbia"),
+        Map.entry("FL", "Florida"), Map.entry("GA", "Georgia"), Map.entry("HI", "Hawaii"),
+        Map.entry("ID", "Idaho"), Map.entry("IL", "Illinois"), Map.entry("IN", "Indiana"),
+        Map.entry("IA", "Iowa"), Map.entry("KS", "Kansas"), Map.entry("KY", "Kentucky"),
+        Map.entry("LA", "Louisiana"), Map.entry("ME", "Maine"), Map.entry("MD", "Maryland"),
+        Map.entry("MA", "Massachusetts"), Map.entry("MI", "Michigan"), Map.entry("MN", "Minnesota"),
+        Map.entry("MS", "Mississippi"), Map.entry("MO", "Missouri"), Map.entry("MT", "Montana"),
+        Map.entry("NE", "Nebraska"), Map.entry("NV", "Nevada"), Map.entry("NH", "New Hampshire"),
+        Map.entry("NJ", "New Jersey"), Map.entry("NM", "New Mexico"), Map.entry("NY", "New York"),
+        Map.entry("NC", "North Carolina"), Map.entry("ND", "North Dakota"), Map.entry("OH", "Ohio"),
+        Map.entry("OK", "Oklahoma"), Map.entry("OR", "Oregon"), Map.entry("PA", "Pennsylvania"),
+        Map.entry("RI", "Rhode Island"), Map.entry("SC", "South Carolina"), Map.entry("SD", "South Dakota"),
+        Map.entry("TN", "Tennessee"), Map.entry("TX", "Texas"), Map.entry("UT", "Utah"),
+        Map.entry("VT", "Vermont"), Map.entry("VA", "Virginia"), Map.entry("WA", "Washington"),
+        Map.entry("WV", "West Virginia"), Map.entry("WI", "Wisconsin"), Map.entry("WY", "Wyoming")
+    );
+    
+    /**
+     * Shards implied by one matched location. Country-level hints are weaker than
+     * state or metro hints and only add shards the specific hints don't already cover.
+     */
+    public record GeoHint(Set<String> shardIds, boolean countryLevel) {}
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    private volatile AhoCorasickMatcher<GeoHint> matcher = new AhoCorasickMatcher<GeoHint>().build();
+    
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+    
+    /**
+     * Rebuild the automaton from the current shard configuration
+     */
+    public synchronized void rebuild() {
+        AhoCorasickMatcher<GeoHint> automaton = new AhoCorasickMatcher<>();
+        List<ShardConfig.ShardDefinition> shards = shardConfig.getShards() != null ? shardConfig.getShards() : List.of();
+        
+        Map<String, Set<String>> shardsByRegion = new HashMap<>();
+        Map<String, Set<String>> shardsByState = new HashMap<>();
+        Map<String, Set<String>> shardsByCountry = new HashMap<>();
+        int patterns = 0;
+        
+        for (ShardConfig.ShardDefinition shard : shards) {
+            ShardConfig.GeographicConfig geo = shard.getGeographic();
+            if (!shard.isActive() || geo == null) {
+                continue;
+            }
+            
+            addAll(shardsByRegion, geo.getRegions(), shard.getShardId());
+            addAll(shardsByState, geo.getStates(), shard.getShardId());
+            addAll(shardsByCountry, geo.getCountries(), shard.getShardId());
+            
+            if (geo.getMetros() != null) {
+                for (String metro : geo.getMetros()) {
+                    automaton.add(metro, new GeoHint(Set.of(shard.getShardId()), false));
+                    patterns++;
+                }
+            }
+        }
+        
+        // States: explicit shard lists plus the state -> region mapping
+        if (shardConfig.getStateToRegion() != null) {
+            shardConfig.getStateToRegion().forEach((state, region) ->
+                shardsByState.computeIfAbsent(state.toUpperCase(Locale.ROOT), k -> new HashSet<>())
+                    .addAll(shardsByRegion.getOrDefault(region, Set.of())));
+        }
+        for (Map.Entry<String, Set<String>> entry : shardsByState.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            GeoHint hint = new GeoHint(Set.copyOf(entry.getValue()), false);
+            // Two-letter codes only match when written in capitals ("IN" not "in", "OR" not "or")
+            automaton.add(entry.getKey(), hint, true);
+            patterns++;
+            String stateName = US_STATE_NAMES.get(entry.getKey());
+            if (stateName != null) {
+                automaton.add(stateName, hint);
+                patterns++;
+            }
+        }
+        
+        // Countries: codes and names; a code that is also a state code ("CA", "IN", "DE") means the state
+        Map<String, Set<String>> countryPatterns = new HashMap<>();
+        shardsByCountry.forEach((code, shardIds) -> {
+            if ("OTHER".equalsIgnoreCase(code)) {
+                return;
+            }
+            Set<String> covering = shardsForCountry(code, shardsByCountry);
+            if (!shardsByState.containsKey(code.toUpperCase(Locale.ROOT))) {
+                countryPatterns.computeIfAbsent(code, k -> new HashSet<>()).addAll(covering);
+            }
+            String name = countryName(code);
+            if (name != null) {
+                countryPatterns.computeIfAbsent(name, k -> new HashSet<>()).addAll(covering);
+            }
+        });
+        if (shardConfig.getCountryToShard() != null) {
+            shardConfig.getCountryToShard().forEach((country, shardId) -> {
+                if (countryPatterns.containsKey(country) || shardsByState.containsKey(country.toUpperCase(Locale.ROOT))) {
+                    return;
+                }
+                Set<String> covering = shardsForCountry(country, shardsByCountry);
+                countryPatterns.put(country, covering.isEmpty() ? Set.of(shardId) : covering);
+            });
+        }
+        for (Map.Entry<String, Set<String>> entry : countryPatterns.entrySet()) {
+            boolean isCode = entry.getKey().length() <= 3;
+            automaton.add(entry.getKey(), new GeoHint(Set.copyOf(entry.getValue()), true), isCode);
+            patterns++;
+        }
+        
+        matcher = automaton.build();
+        log.info("Built geographic hint automaton with {} patterns", patterns);
+    }
+    
+    /**
+     * Shard ids implied by the locations mentioned in the query; empty if it mentions none
+     */
+    public Set<String> extractShardIds(String query) {
+        Set<String> specific = new LinkedHashSet<>();
+        List<Set<String>> countryHints = new ArrayList<>();
+        
+        for (AhoCorasickMatcher.Match<GeoHint> match : matcher.findLongest(query)) {
+            if (match.payload().countryLevel()) {
+                countryHints.add(match.payload().shardIds());
+            } else {
+                specific.addAll(match.payload().shardIds());
+            }
+        }
+        
+        // "Boston, USA" stays on the Boston shard; "Boston or London, UK" adds the UK shard
+        Set<String> shardIds = new LinkedHashSet<>(specific);
+        for (Set<String> countryShards : countryHints) {
+            if (specific.isEmpty() || countryShards.stream().noneMatch(specific::contains)) {
+                shardIds.addAll(countryShards);
+            }
+        }
+        return shardIds;
+    }
+    
+    /**
+     * Shards holding a country, matching it by alpha-2 or alpha-3 code ("US" and "USA") or by name
+     */
+    private static Set<String> shardsForCountry(String country, Map<String, Set<String>> shardsByCountry) {
+        Set<String> aliases = new HashSet<>();
+        aliases.add(country.toUpperCase(Locale.ROOT));
+        for (String iso : Locale.getISOCountries()) {
+            Locale locale = Locale.of("", iso);
+            String name = locale.getDisplayCountry(Locale.ENGLISH).toUpperCase(Locale.ROOT);
+            String iso3 = iso3Country(locale);
+            if (aliases.contains(iso) || aliases.contains(iso3) || aliases.contains(name)) {
+                aliases.add(iso);
+                aliases.add(name);
+                if (iso3 != null) {
+                    aliases.add(iso3);
+                }
+            }
+        }
+        
+        Set<String> shardIds = new HashSet<>();
+        shardsByCountry.forEach((code, shards) -> {
+            if (aliases.contains(code.toUpperCase(Locale.ROOT))) {
+                shardIds.addAll(shards);
+            }
+        });
+        return shardIds;
+    }
+    
+    private static String countryName(String code) {
+        for (String iso : Locale.getISOCountries()) {
+            Locale locale = Locale.of("", iso);
+            if (iso.equalsIgnoreCase(code) || code.equalsIgnoreCase(iso3Country(locale))) {
+                return locale.getDisplayCountry(Locale.ENGLISH);
+            }
+        }
+        return null;
+    }
+    
+    private static String iso3Country(Locale locale) {
+        try {
+            return locale.getISO3Country();
+        } catch (MissingResourceException e) {
+            return null;
+        }
+    }
+    
+    private static void addAll(Map<String, Set<String>> index, List<String> keys, String shardId) {
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            index.computeIfAbsent(key.toUpperCase(Locale.ROOT), k -> new HashSet<>()).add(shardId);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.semantictalent.finder.service;
+
+import com.pgvector.PGvector;
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.dto.SearchRequestDto;
+import com.semantictalent.finder.dto.SearchResultDto;
+import com.semantictalent.finder.util.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Shard searches with hedging: the query goes to the primary or a replica picked by the
+ * AdaptiveShardSelector, and if that hasn't answered by its observed latency percentile
+ * (p95 by default), the same query is sent to another copy and the first successful
+ * response wins. The loser is cancelled.
+ */
+@Service
+@Slf4j
+public class HedgedShardSearchService {
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardedSearchService shardedSearchService;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private ShardHealthMonitorService shardHealthMonitor;
+    
+    @Autowired
+    private AdaptiveShardSelector adaptiveShardSelector;
+    
+    @Autowired
+    @Qualifier("shardSearchTaskExecutor")
+    private ExecutorService shardSearchExecutor;
+    
+    private final LongAdder shardRequests = new LongAdder();
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    
+    /**
+     * Search one shard, hedging to a replica if the primary is slow
+     * @param timeoutMs Remaining request budget (0 = no limit)
+     * @param scoreFloor Live global k-th score pushed down to the shard query
+     */
+    public SearchResultDto search(String shardId, SearchRequestDto request, PGvector queryEmbedding, long timeoutMs,
+                                  DoubleSupplier scoreFloor) {
+        shardRequests.increment();
+        
+        ShardConfig.HedgingConfig hedging = shardConfig.getHedging();
+        // The primary plus every replica that is reachable and not too far behind
+        List<String> candidates = new ArrayList<>();
+        candidates.add(shardId);
+        shardDataSourceRouter.getReplicaKeys(shardId).stream()
+            .filter(this::isReplicaFresh)
+            .forEach(candidates::add);
+        String target = adaptiveShardSelector.choose(candidates);
+        
+        if (!hedging.isEnabled() || candidates.size() == 1) {
+            long startTime = System.currentTimeMillis();
+            SearchResultDto result = null;
+            adaptiveShardSelector.begin(target);
+            try {
+                result = shardedSearchService.searchInShard(shardId, target, request, queryEmbedding, timeoutMs, scoreFloor);
+                return result;
+            } finally {
+                long latencyMs = System.currentTimeMillis() - startTime;
+                boolean succeeded = result != null && result.isSuccess();
+                adaptiveShardSelector.complete(target, latencyMs, succeeded);
+                shardHealthMonitor.recordStageLatency(shardId, stageOf(shardId, target), latencyMs, succeeded);
+            }
+        }
+        
+        long startTime = System.currentTimeMillis();
+        long budgetMs = timeoutMs > 0 ? timeoutMs : Long.MAX_VALUE;
+        CompletableFuture<SearchResultDto> winner = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        List<Future<?>> attempts = new ArrayList<>(2);
+        attempts.add(submitAttempt(shardId, target, false, request, queryEmbedding, timeoutMs, scoreFloor, winner, outstanding));
+        
+        try {
+            long hedgeDelayMs = hedgeDelayMs(shardId, stageOf(shardId, target));
+            if (hedgeDelayMs < budgetMs) {
+                try {
+                    return winner.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // First attempt is slower than its usual tail: hedge if we are within the hedge budget
+                }
+                
+                if (withinHedgeBudget()) {
+                    List<String> others = candidates.stream().filter(candidate -> !candidate.equals(target)).toList();
+                    String hedgeTarget = adaptiveShardSelector.choose(others);
+                    long remainingMs = timeoutMs > 0 ? Math.max(1L, timeoutMs - (System.currentTimeMillis() - startTime)) : 0L;
+                    hedgedRequests.increment();
+                    outstanding.incrementAndGet();
+                    attempts.add(submitAttempt(shardId, hedgeTarget, true, request, queryEmbedding, remainingMs, scoreFloor, winner, outstanding));
+                    log.debug("{} slower than {}ms, hedging shard {} to {}", target, hedgeDelayMs, shardId, hedgeTarget);
+                }
+            }
+            
+            long remainingMs = budgetMs == Long.MAX_VALUE ? Long.MAX_VALUE : budgetMs - (System.currentTimeMillis() - startTime);
+            return winner.get(Math.max(1L, remainingMs), TimeUnit.MILLISECONDS);
+        
+        } catch (TimeoutException e) {
+            return failedResult(request, shardId, "Shard search timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failedResult(request, shardId, "Shard search cancelled");
+        } catch (ExecutionException e) {
+            return failedResult(request, shardId, "Shard search failed: " + e.getCause().getMessage());
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(true));
+        }
+    }
+    
+    public Map<String, Object> getHedgingStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long requests = shardRequests.sum();
+        long hedged = hedgedRequests.sum();
+        stats.put("shardRequests", requests);
+        stats.put("hedgedRequests", hedged);
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("hedgeRate", requests > 0 ? (double) hedged / requests : 0.0);
+        
+        Map<String, Long> delays = new HashMap<>();
+        shardConfig.getAllActiveShardIds().stream()
+            .filter(shardId -> !shardDataSourceRouter.getReplicaKeys(shardId).isEmpty())
+            .forEach(shardId -> delays.put(shardId, hedgeDelayMs(shardId, ShardHealthMonitorService.STAGE_PRIMARY)));
+        stats.put("hedgeDelayMs", delays);
+        stats.put("selection", adaptiveShardSelector.getSelectionStats());
+        return stats;
+    }
+    
+    private Future<?> submitAttempt(String shardId, String target, boolean hedge, SearchRequestDto request,
+                                    PGvector queryEmbedding, long timeoutMs, DoubleSupplier scoreFloor,
+                                    CompletableFuture<SearchResultDto> winner, AtomicInteger outstanding) {
+        adaptiveShardSelector.begin(target);
+        return shardSearchExecutor.submit(() -> {
+            long startTime = System.currentTimeMillis();
+            SearchResultDto result = null;
+            try {
+                result = shardedSearchService.searchInShard(shardId, target, request, queryEmbedding, timeoutMs, scoreFloor);
+            } finally {
+                boolean succeeded = result != null && result.isSuccess();
+                // An attempt cancelled because the other one won isn't an error, and its duration still
+                // counts as a latency sample, so a hanging primary pushes its percentile up
+                boolean lostRace = !succeeded && winner.isDone();
+                long latencyMs = System.currentTimeMillis() - startTime;
+                adaptiveShardSelector.complete(target, latencyMs, succeeded || lostRace);
+                shardHealthMonitor.recordStageLatency(shardId, stageOf(shardId, target), latencyMs, succeeded || lostRace);
+                
+                boolean lastAttempt = outstanding.decrementAndGet() == 0;
+                if (succeeded) {
+                    if (winner.complete(result) && hedge) {
+                        hedgeWins.increment();
+                    }
+                } else if (lastAttempt) {
+                    // Every attempt failed: surface the last failure
+                    winner.complete(result != null ? result : failedResult(request, shardId, "Shard search failed"));
+                }
+            }
+        });
+    }
+    
+    private long hedgeDelayMs(String shardId, String stage) {
+        ShardConfig.HedgingConfig hedging = shardConfig.getHedging();
+        LatencyHistogram.Snapshot latency = shardHealthMonitor.getLatencySnapshot(shardId, stage);
+        long delay = latency.count() >= hedging.getMinSamples()
+            ? latency.percentile(hedging.getPercentile())
+            : hedging.getDefaultDelayMs();
+        return Math.max(hedging.getMinDelayMs(), delay);
+    }
+    
+    private boolean withinHedgeBudget() {
+        long requests = shardRequests.sum();
+        return requests > 0 && hedgedRequests.sum() < requests * shardConfig.getHedging().getMaxHedgeRatio();
+    }
+    
+    /**
+     * Replica lag from the last health check is within bounds (unknown lag counts as fresh)
+     */
+    private boolean isReplicaFresh(String replicaKey) {
+        Long lagMs = shardHealthMonitor.getReplicaLagMs(replicaKey);
+        return lagMs == null || (lagMs >= 0 && lagMs <= shardConfig.getHedging().getMaxReplicaLagMs());
+    }
+    
+    private static String stageOf(String shardId, String target) {
+        return shardId.equals(target) ? ShardHealthMonitorService.STAGE_PRIMARY : ShardHealthMonitorService.STAGE_REPLICA;
+    }
+    
+    private SearchResultDto failedResult(SearchRequestDto request, String shardId, String message) {
+        return SearchResultDto.builder()
+            .profiles(Collections.emptyList())
+            .totalResults(0)
+            .executionTimeMs(0L)
+            .query(request.getQuery())
+            .threshold(request.getThreshold())
+            .shardId(shardId)
+            .success(false)
+            .errorMessage(message)
+            .build();
+    }
+}
@@ -4,12 +4,13 @@ import com.semantictalent.finder.dto.ImportStatusDto;
 import com.semantictalent.finder.entity.Profile;
 import com.semantictalent.finder.repository.ProfileRepository;
 import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.util.UuidUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.time.LocalDateTime;
@@ -47,6 +48,18 @@ public class ParquetImportService {
     @Autowired
     private EmbeddingService embeddingService;
     
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    private ShardBulkWriter shardBulkWriter;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ProfileCountService profileCountService;
+    
     // Track active imports
     private final Map<String, ImportStatusDto> activeImports = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<Void>> importTasks = new ConcurrentHashMap<>();
@@ -172,7 +185,9 @@ public class ParquetImportService {
 
                 batch.add(profile);
                 if (batch.size() >= batchSize) {
-                    profileRepository.saveAll(batch);
+                    profileOrdinalService.assignOrdinals(batch);
+                    profileOrdinalService.registerAll(profileRepository.saveAll(batch));
+                    eventPublisher.publishEvent(new ProfilesImportedEvent(importId, List.copyOf(batch)));
                     processedCount += batch.size();
                     log.info("Processed batch of {}, total processed: {}", batch.size(), processedCount);
                     updateImportStatus(importId, "PROCESSING", processedCount, (double) processedCount / totalRecords * 100, "Processing...");
@@ -180,7 +195,9 @@ public class ParquetImportService {
                 }
             }
             if (!batch.isEmpty()) {
-                profileRepository.saveAll(batch);
+                profileOrdinalService.assignOrdinals(batch);
+                profileOrdinalService.registerAll(profileRepository.saveAll(batch));
+                eventPublisher.publishEvent(new ProfilesImportedEvent(importId, List.copyOf(batch)));
                 processedCount += batch.size();
                 log.info("Processed final batch of {}, total processed: {}", batch.size(), processedCount);
             }
@@ -213,7 +230,10 @@ public class ParquetImportService {
                 int endIdx = Math.min(startIdx + batchSize, sampleSize);
                 List<Profile> batch = sampleProfiles.subList(startIdx, endIdx);
                 
-                processBatchWithSharding(batch, importId);
+                int failed = processBatchWithSharding(batch, importId);
+                if (failed > 0) {
+                    addFailedRecords(importId, failed);
+                }
                 
                 long processed = (long) endIdx;
                 double progress = (processed / (double) sampleSize) * 100.0;
@@ -264,53 +284,53 @@ public class ParquetImportService {
     }
     
     /**
-     * Process a batch of profiles with intelligent shard placement
+     * Process a batch of profiles with intelligent shard placement; the shard groups are
+     * written concurrently, each committing independently
+     * @return Number of profiles that could not be written
      */
-    @Transactional
-    private void processBatchWithSharding(List<Profile> profiles, String importId) {
+    private int processBatchWithSharding(List<Profile> profiles, String importId) {
         Map<String, List<Profile>> shardBatches = new HashMap<>();
         
         // Distribute profiles to shards based on geographic + hash strategy
         for (Profile profile : profiles) {
             String shardId = shardCoordinator.determineProfileShard(profile);
+            profile.setImportBatchId(importId);
+            profile.setShardId(shardId); // Add shard tracking
             shardBatches.computeIfAbsent(shardId, k -> new ArrayList<>()).add(profile);
-        }
-        
-        // Process each shard batch
-        for (Map.Entry<String, List<Profile>> entry : shardBatches.entrySet()) {
-            String shardId = entry.getKey();
-            List<Profile> shardProfiles = entry.getValue();
             
+            // Generate and set embedding
             try {
-                // In production, this would write to the specific shard database
-                // For now, save to the main database with shard tagging
-                for (Profile profile : shardProfiles) {
-                    profile.setImportBatchId(importId);
-                    profile.setShardId(shardId); // Add shard tracking
-                    
-                    // Generate and set embedding
-                    try {
-                        PGvector embedding = embeddingService.generateProfileEmbedding(
-                            profile.getFullName(), 
-                            profile.getHeadline(), 
-                            profile.getSummary(), 
-                            profile.getSkills()
-                        );
-                        profile.setEmbedding(embedding);
-                    } catch (Exception e) {
-                        log.warn("Failed to generate embedding for profile {}: {}", profile.getFullName(), e.getMessage());
-                        // Continue without embedding - the column allows NULL
-                    }
-                }
-                
-                profileRepository.saveAll(shardProfiles);
-                log.debug("Saved {} profiles to shard {}", shardProfiles.size(), shardId);
-                
+                PGvector embedding = embeddingService.generateProfileEmbedding(
+                    profile.getFullName(), 
+                    profile.getHeadline(), 
+                    profile.getSummary(), 
+                    profile.getSkills()
+                );
+                profile.setEmbedding(embedding);
             } catch (Exception e) {
-                log.error("Failed to save batch to shard {}: {}", shardId, e.getMessage());
-                throw e;
+                log.warn("Failed to generate embedding for profile {}: {}", profile.getFullName(), e.getMessage());
+                // Continue without embedding - the column allows NULL
             }
         }
+        
+        // Ordinals come from the primary database so they stay unique across shards
+        profileOrdinalService.assignOrdinals(profiles);
+        
+        int failed = 0;
+        List<Profile> written = new ArrayList<>(profiles.size());
+        for (ShardBulkWriter.ShardWriteResult result : shardBulkWriter.writeAll(shardBatches).values()) {
+            written.addAll(result.written());
+            if (result.failed() > 0) {
+                failed += result.failed();
+                log.error("Import {}: {} profiles not written to shard {}: {}", importId, result.failed(), result.shardId(), result.error());
+            } else {
+                log.debug("Saved {} profiles to shard {} in {}ms", result.written().size(), result.shardId(), result.elapsedMs());
+            }
+        }
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(new ProfilesImportedEvent(importId, written));
+        }
+        return failed;
     }
     
     /**
@@ -327,7 +347,7 @@ public class ParquetImportService {
         
         for (int i = 0; i < count; i++) {
             Profile profile = new Profile();
-            profile.setId(UUID.randomUUID());
+            profile.setId(UuidUtils.generateV7());
             profile.setFullName("Test User " + (i + 1));
             profile.setFirstName("Test");
             profile.setLastName("User " + (i + 1));
@@ -372,6 +392,13 @@ public class ParquetImportService {
         }
     }
     
+    private void addFailedRecords(String importId, long failed) {
+        activeImports.computeIfPresent(importId, (id, status) -> {
+            status.setFailedRecords((status.getFailedRecords() != null ? status.getFailedRecords() : 0L) + failed);
+            return status;
+        });
+    }
+    
     private void handleImportError(String importId, Exception e) {
         log.error("Import {} failed with error", importId, e);
         updateImportStatus(importId, "FAILED", 0L, 0.0, "Import failed: " + e.getMessage());
@@ -415,7 +442,7 @@ public class ParquetImportService {
         stats.put("completedImports", completedImports);
         stats.put("failedImports", failedImports);
         stats.put("activeImports", activeImportsCount);
-        stats.put("totalProfilesImported", profileRepository.count());
+        stats.put("totalProfilesImported", profileCountService.getEstimate());
         
         return stats;
     }
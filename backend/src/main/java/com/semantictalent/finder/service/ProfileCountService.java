@@ -0,0 +1,174 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.entity.Profile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cheap profile row counts for searches, health probes and stats. The baseline is the
+ * planner's pg_class.reltuples estimate for the profiles table on the primary and every
+ * shard (a catalogue lookup, not a scan), re-read periodically; committed import batches
+ * are added on top of the baseline of the database they were written to, until ANALYZE or
+ * autovacuum moves that database's baseline past them.
+ */
+@Service
+@Slf4j
+public class ProfileCountService {
+    
+    private static final String RELTUPLES_QUERY =
+        "SELECT COALESCE((SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass('profiles')), -1)";
+    
+    private static final String PRIMARY = "primary";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    // Guarded by this: reltuples per database (-1 = never analyzed) and imports since each baseline moved
+    private final Map<String, Long> baselines = new HashMap<>();
+    private final Map<String, Long> importedSinceBaseline = new HashMap<>();
+    private long lastRefreshMs;
+    
+    // Cached answer for the primary emptiness check when reltuples cannot tell; null = unknown
+    private volatile Boolean primaryEmpty;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refresh();
+    }
+    
+    /**
+     * Re-read reltuples; a database whose baseline moved has absorbed the imports counted for it
+     */
+    @Scheduled(fixedDelayString = "${app.row-count.refresh-ms:30000}", initialDelayString = "${app.row-count.refresh-ms:30000}")
+    public void refresh() {
+        Map<String, Long> fresh = new HashMap<>();
+        try {
+            fresh.put(PRIMARY, reltuples(jdbcTemplate));
+        } catch (Exception e) {
+            log.warn("Could not read profile row estimate from primary: {}", e.getMessage());
+        }
+        if (shardConfig.isEnabled() && shardConfig.getShards() != null) {
+            for (String shardId : shardConfig.getAllActiveShardIds()) {
+                JdbcTemplate shard = shardDataSourceRouter.getJdbcTemplate(shardId);
+                if (shard == null) {
+                    continue;
+                }
+                try {
+                    fresh.put(shardId, reltuples(shard));
+                } catch (Exception e) {
+                    log.warn("Could not read profile row estimate from shard {}: {}", shardId, e.getMessage());
+                }
+            }
+        }
+        
+        synchronized (this) {
+            for (Map.Entry<String, Long> entry : fresh.entrySet()) {
+                Long previous = baselines.put(entry.getKey(), entry.getValue());
+                if (previous == null || !previous.equals(entry.getValue())) {
+                    importedSinceBaseline.remove(entry.getKey());
+                    if (PRIMARY.equals(entry.getKey())) {
+                        primaryEmpty = null;
+                    }
+                }
+            }
+            lastRefreshMs = System.currentTimeMillis();
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfilesImported(ProfilesImportedEvent event) {
+        Map<String, Long> imported = new HashMap<>();
+        for (Profile profile : event.profiles()) {
+            imported.merge(databaseOf(profile), 1L, Long::sum);
+        }
+        synchronized (this) {
+            imported.forEach((database, count) -> importedSinceBaseline.merge(database, count, Long::sum));
+        }
+        if (imported.containsKey(PRIMARY)) {
+            primaryEmpty = null;
+        }
+    }
+    
+    /**
+     * Estimated number of profiles across the primary and all shards
+     */
+    public synchronized long getEstimate() {
+        long total = 0;
+        for (long reltuples : baselines.values()) {
+            total += Math.max(0, reltuples);
+        }
+        for (long imported : importedSinceBaseline.values()) {
+            total += imported;
+        }
+        return total;
+    }
+    
+    /**
+     * Whether the primary profiles table is empty. Answered from reltuples when it is
+     * positive, otherwise with a single-row EXISTS probe whose answer is kept until the
+     * next import or baseline change.
+     */
+    public boolean isPrimaryEmpty() {
+        synchronized (this) {
+            Long reltuples = baselines.get(PRIMARY);
+            if (reltuples != null && reltuples > 0) {
+                return false;
+            }
+        }
+        Boolean cached = primaryEmpty;
+        if (cached == null) {
+            Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM profiles)", Boolean.class);
+            cached = !Boolean.TRUE.equals(exists);
+            primaryEmpty = cached;
+        }
+        return cached;
+    }
+    
+    /**
+     * Whether the primary's baseline has been read at least once, i.e. getEstimate() means something
+     */
+    public synchronized boolean hasBaseline() {
+        return baselines.containsKey(PRIMARY);
+    }
+    
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("estimate", getEstimate());
+        stats.put("baselines", new HashMap<>(baselines));
+        stats.put("importedSinceBaseline", new HashMap<>(importedSinceBaseline));
+        stats.put("lastRefreshMs", lastRefreshMs);
+        return stats;
+    }
+    
+    /**
+     * Database a profile was written to: its shard's own database, or the primary for
+     * unsharded imports and shards without one
+     */
+    private String databaseOf(Profile profile) {
+        String shardId = profile.getShardId();
+        return shardId != null && shardDataSourceRouter.hasDataSource(shardId) ? shardId : PRIMARY;
+    }
+    
+    private long reltuples(JdbcTemplate jdbc) {
+        Long reltuples = jdbc.queryForObject(RELTUPLES_QUERY, Long.class);
+        return reltuples != null ? reltuples : -1;
+    }
+}
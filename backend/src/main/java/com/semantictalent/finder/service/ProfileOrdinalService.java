@@ -0,0 +1,359 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.entity.Profile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maps profile UUIDs to dense int ordinals and back.
+ * Both directions live in direct (off-heap) buffers so that bitmaps, vector arrays
+ * and graph indexes can reference 51M profiles by int instead of by UUID object.
+ */
+@Service
+@Slf4j
+public class ProfileOrdinalService {
+
+    public static final int NO_ORDINAL = -1;
+
+    private static final String SEQUENCE_NAME = "profile_ordinal_seq";
+    private static final int UUID_BYTES = 16;
+    private static final int MAX_ORDINALS = Integer.MAX_VALUE / UUID_BYTES;
+
+    @Value("${app.ordinals.initial-capacity:1048576}")
+    private int initialCapacity;
+
+    @Value("${app.ordinals.preload:false}")
+    private boolean preload;
+
+    @Value("${app.ordinals.preload-fetch-size:50000}")
+    private int preloadFetchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardConfig shardConfig;
+
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ordinal -> UUID (16 bytes per ordinal, msb then lsb; all zero = unassigned)
+    private ByteBuffer uuidsByOrdinal;
+
+    // UUID -> ordinal + 1 (open addressing, linear probing; 0 = empty slot)
+    private IntBuffer ordinalSlots;
+    private int slotMask;
+    private int mappedCount;
+    private int maxOrdinal = NO_ORDINAL;
+
+    @PostConstruct
+    public void init() {
+        // profile_ordinal_seq itself is created by SchemaMigrationService
+        int capacity = Math.max(1024, Math.min(initialCapacity, MAX_ORDINALS));
+        uuidsByOrdinal = ByteBuffer.allocateDirect(capacity * UUID_BYTES);
+        allocateSlots(slotCapacityFor(capacity));
+    }
+
+    /**
+     * Preload the mapping for profiles already stored in the primary and shard databases
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void preloadMappings() {
+        if (!preload) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            preloadFrom(jdbcTemplate.getDataSource());
+            if (shardConfig.isEnabled() && shardConfig.getShards() != null) {
+                for (String shardId : shardConfig.getAllActiveShardIds()) {
+                    TransactionTemplate shardTransaction = shardDataSourceRouter.getTransactionTemplate(shardId);
+                    if (shardTransaction != null) {
+                        DataSource shardDataSource = shardDataSourceRouter.getDataSource(shardId);
+                        shardTransaction.executeWithoutResult(status -> preloadFrom(shardDataSource));
+                    }
+                }
+            }
+            log.info("Preloaded {} profile ordinals in {}ms", mappedCount, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Failed to preload profile ordinals", e);
+        }
+    }
+
+    // Fetch size only streams inside a transaction (autocommit off) on PostgreSQL; callers open one
+    private void preloadFrom(DataSource dataSource) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(preloadFetchSize);
+        streamingTemplate.query("SELECT ordinal, id FROM profiles WHERE ordinal IS NOT NULL",
+            rs -> { register(rs.getInt(1), rs.getObject(2, UUID.class)); });
+    }
+
+    /**
+     * Assign ordinals to profiles that don't have one yet, in one sequence round trip
+     */
+    public void assignOrdinals(List<Profile> profiles) {
+        List<Profile> unassigned = profiles.stream()
+            .filter(profile -> profile.getOrdinal() == null)
+            .toList();
+        if (unassigned.isEmpty()) {
+            return;
+        }
+
+        List<Integer> ordinals = allocateOrdinals(unassigned.size());
+        for (int i = 0; i < unassigned.size(); i++) {
+            unassigned.get(i).setOrdinal(ordinals.get(i));
+        }
+    }
+
+    /**
+     * Draw the next count ordinals from the primary database's sequence in one round trip
+     */
+    public List<Integer> allocateOrdinals(int count) {
+        return jdbcTemplate.queryForList(
+            "SELECT nextval('" + SEQUENCE_NAME + "')::int FROM generate_series(1, ?)",
+            Integer.class, count);
+    }
+
+    /**
+     * Record the mapping for persisted profiles (ids must already be assigned). Inside a
+     * transaction the mapping is only recorded once it commits, so a rollback leaves none behind.
+     */
+    public void registerAll(Iterable<Profile> profiles) {
+        List<Profile> persisted = new ArrayList<>();
+        for (Profile profile : profiles) {
+            if (profile.getOrdinal() != null && profile.getId() != null) {
+                persisted.add(profile);
+            }
+        }
+        if (persisted.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    persisted.forEach(profile -> register(profile.getOrdinal(), profile.getId()));
+                }
+            });
+        } else {
+            persisted.forEach(profile -> register(profile.getOrdinal(), profile.getId()));
+        }
+    }
+
+    /**
+     * Map id to ordinal. Re-registering an id under a new ordinal moves it: the old
+     * ordinal no longer resolves to the id.
+     */
+    public void register(int ordinal, UUID id) {
+        if (ordinal < 0 || ordinal >= MAX_ORDINALS) {
+            log.warn("Ignoring out-of-range profile ordinal {} for {}", ordinal, id);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int previous = findOrdinal(id);
+            if (previous == ordinal) {
+                return;
+            }
+            ensureOrdinalCapacity(ordinal);
+
+            int offset = ordinal * UUID_BYTES;
+            boolean wasEmpty = uuidsByOrdinal.getLong(offset) == 0L && uuidsByOrdinal.getLong(offset + 8) == 0L;
+            uuidsByOrdinal.putLong(offset, id.getMostSignificantBits());
+            uuidsByOrdinal.putLong(offset + 8, id.getLeastSignificantBits());
+            maxOrdinal = Math.max(maxOrdinal, ordinal);
+
+            if (previous != NO_ORDINAL) {
+                // Point the id's existing slot at the new ordinal and free the old one
+                replaceSlot(id, previous, ordinal);
+                uuidsByOrdinal.putLong(previous * UUID_BYTES, 0L);
+                uuidsByOrdinal.putLong(previous * UUID_BYTES + 8, 0L);
+                if (!wasEmpty) {
+                    mappedCount--;
+                }
+                return;
+            }
+
+            if (wasEmpty) {
+                mappedCount++;
+                if ((long) mappedCount * 2 > ordinalSlots.capacity()) {
+                    rehash(ordinalSlots.capacity() * 2);
+                }
+            }
+            insertSlot(id, ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resolve an ordinal back to the profile UUID, or null if unknown
+     */
+    public UUID getProfileId(int ordinal) {
+        lock.readLock().lock();
+        try {
+            if (ordinal < 0 || ordinal > maxOrdinal) {
+                return null;
+            }
+            return readUuid(ordinal);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Resolve a profile UUID to its ordinal, or NO_ORDINAL if unknown
+     */
+    public int getOrdinal(UUID id) {
+        lock.readLock().lock();
+        try {
+            return findOrdinal(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Upper bound (exclusive) for arrays indexed by ordinal
+     */
+    public int getOrdinalBound() {
+        return maxOrdinal + 1;
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("mappedProfiles", mappedCount);
+            stats.put("maxOrdinal", maxOrdinal);
+            stats.put("offHeapBytes", (long) uuidsByOrdinal.capacity() + (long) ordinalSlots.capacity() * Integer.BYTES);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureOrdinalCapacity(int ordinal) {
+        int capacity = uuidsByOrdinal.capacity() / UUID_BYTES;
+        if (ordinal < capacity) {
+            return;
+        }
+
+        long newCapacity = capacity;
+        while (newCapacity <= ordinal) {
+            newCapacity *= 2;
+        }
+        newCapacity = Math.min(newCapacity, MAX_ORDINALS);
+
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity * UUID_BYTES);
+        uuidsByOrdinal.clear();
+        grown.put(uuidsByOrdinal);
+        grown.clear();
+        uuidsByOrdinal = grown;
+
+        log.debug("Grew profile ordinal array to {} entries", newCapacity);
+    }
+
+    private int findOrdinal(UUID id) {
+        int slot = slotFor(id);
+        while (true) {
+            int stored = ordinalSlots.get(slot);
+            if (stored == 0) {
+                return NO_ORDINAL;
+            }
+            if (matches(stored - 1, id)) {
+                return stored - 1;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private void replaceSlot(UUID id, int oldOrdinal, int newOrdinal) {
+        int slot = slotFor(id);
+        while (ordinalSlots.get(slot) != oldOrdinal + 1) {
+            slot = (slot + 1) & slotMask;
+        }
+        ordinalSlots.put(slot, newOrdinal + 1);
+    }
+
+    private void insertSlot(UUID id, int ordinal) {
+        int slot = slotFor(id);
+        while (true) {
+            int stored = ordinalSlots.get(slot);
+            if (stored == 0 || stored - 1 == ordinal) {
+                ordinalSlots.put(slot, ordinal + 1);
+                return;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private void rehash(int newSlotCapacity) {
+        allocateSlots(newSlotCapacity);
+        for (int ordinal = 0; ordinal <= maxOrdinal; ordinal++) {
+            UUID id = readUuid(ordinal);
+            if (id != null) {
+                insertSlot(id, ordinal);
+            }
+        }
+    }
+
+    private void allocateSlots(int slotCapacity) {
+        ordinalSlots = ByteBuffer.allocateDirect(slotCapacity * Integer.BYTES).asIntBuffer();
+        slotMask = slotCapacity - 1;
+    }
+
+    private boolean matches(int ordinal, UUID id) {
+        int offset = ordinal * UUID_BYTES;
+        return uuidsByOrdinal.getLong(offset) == id.getMostSignificantBits() &&
+               uuidsByOrdinal.getLong(offset + 8) == id.getLeastSignificantBits();
+    }
+
+    private UUID readUuid(int ordinal) {
+        int offset = ordinal * UUID_BYTES;
+        long msb = uuidsByOrdinal.getLong(offset);
+        long lsb = uuidsByOrdinal.getLong(offset + 8);
+        return msb == 0L && lsb == 0L ? null : new UUID(msb, lsb);
+    }
+
+    private int slotFor(UUID id) {
+        long h = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h & slotMask;
+    }
+
+    private static int slotCapacityFor(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) << 1;
+    }
+}
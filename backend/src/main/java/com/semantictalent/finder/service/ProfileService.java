@@ -1,18 +1,26 @@
 package com.semantictalent.finder.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.semantictalent.finder.dto.ProfileCursorPageDto;
 import com.semantictalent.finder.dto.ProfileDto;
+import com.semantictalent.finder.dto.ProfileListItemDto;
 import com.semantictalent.finder.entity.Profile;
 import com.semantictalent.finder.repository.ProfileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
@@ -27,6 +35,15 @@ public class ProfileService {
     @Autowired
     private ParquetImportService parquetImportService;
     
+    @Autowired
+    private ProfileStatsService profileStatsService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.export.batch-size:1000}")
+    private int exportBatchSize;
+    
     public ProfileDto getProfileById(UUID id) {
         Optional<Profile> profile = profileRepository.findById(id);
         if (profile.isPresent()) {
@@ -35,6 +52,67 @@ public class ProfileService {
         throw new RuntimeException("Profile not found with id: " + id);
     }
     
+    /**
+     * Keyset page of profile projections with ordinal greater than the cursor
+     */
+    public ProfileCursorPageDto getProfilesAfter(int afterOrdinal, int limit) {
+        // Fetch one extra row to know whether another page exists
+        List<ProfileListItemDto> rows = profileRepository.findListItemsAfterOrdinal(afterOrdinal, Limit.of(limit + 1));
+        boolean hasMore = rows.size() > limit;
+        List<ProfileListItemDto> page = hasMore ? rows.subList(0, limit) : rows;
+        
+        return ProfileCursorPageDto.builder()
+            .profiles(page)
+            .nextCursor(page.isEmpty() ? null : page.get(page.size() - 1).getOrdinal())
+            .hasMore(hasMore)
+            .build();
+    }
+    
+    /**
+     * Stream profiles as NDJSON (one JSON object per line), walking the table in keyset batches
+     * so memory stays flat and each batch costs the same regardless of depth.
+     * Stops before the next batch once cancelled is set or the thread is interrupted.
+     * @param lastFlushed Updated to the ordinal of the last profile flushed to the output
+     * @return Number of profiles written
+     */
+    public long exportProfiles(int afterOrdinal, long maxProfiles, OutputStream output,
+                               AtomicInteger lastFlushed, AtomicBoolean cancelled) throws IOException {
+        long written = 0;
+        int cursor = afterOrdinal;
+        
+        while (written < maxProfiles && !isStopped(cancelled)) {
+            int batchLimit = (int) Math.min(exportBatchSize, maxProfiles - written);
+            List<ProfileListItemDto> batch = profileRepository.findListItemsAfterOrdinal(cursor, Limit.of(batchLimit));
+            if (batch.isEmpty() || isStopped(cancelled)) {
+                break;
+            }
+            
+            for (ProfileListItemDto profile : batch) {
+                output.write(objectMapper.writeValueAsBytes(profile));
+                output.write('\n');
+            }
+            output.flush();
+            
+            written += batch.size();
+            cursor = batch.get(batch.size() - 1).getOrdinal();
+            lastFlushed.set(cursor);
+            if (batch.size() < batchLimit) {
+                break;
+            }
+        }
+        
+        if (isStopped(cancelled)) {
+            log.info("NDJSON export cancelled after {} profiles (after ordinal {}, last flushed {})", written, afterOrdinal, cursor);
+        } else {
+            log.info("Exported {} profiles as NDJSON (after ordinal {})", written, afterOrdinal);
+        }
+        return written;
+    }
+    
+    private static boolean isStopped(AtomicBoolean cancelled) {
+        return cancelled.get() || Thread.currentThread().isInterrupted();
+    }
+    
     public void processBatchImport(MultipartFile file) {
         log.info("Starting batch import for file: {}", file.getOriginalFilename());
         
@@ -56,21 +134,7 @@ public class ProfileService {
     }
     
     public Map<String, Object> getProfileStats() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        Long totalProfiles = profileRepository.countTotalProfiles();
-        List<String> industries = profileRepository.findDistinctIndustries();
-        List<String> locations = profileRepository.findDistinctLocations();
-        List<String> experienceLevels = profileRepository.findDistinctExperienceLevels();
-        
-        stats.put("totalProfiles", totalProfiles);
-        stats.put("totalIndustries", industries.size());
-        stats.put("totalLocations", locations.size());
-        stats.put("experienceLevels", experienceLevels);
-        stats.put("industries", industries.subList(0, Math.min(10, industries.size()))); // Top 10
-        stats.put("locations", locations.subList(0, Math.min(10, locations.size()))); // Top 10
-        
-        return stats;
+        return profileStatsService.getProfileStats();
     }
     
     private ProfileDto convertToDto(Profile profile) {
@@ -0,0 +1,57 @@
+package com.semantictalent.finder.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profile statistics for /api/profiles/stats, served from memory. Distinct counts and the
+ * top industries and locations come from the facet catalogue; the profile total is the
+ * row-count estimate (ProfileCountService), which import batches keep current. Nothing here
+ * counts or scans profiles.
+ */
+@Service
+@Slf4j
+public class ProfileStatsService {
+    
+    private static final int TOP_N = 10;
+    
+    @Autowired
+    private FacetCatalogService facetCatalogService;
+    
+    @Autowired
+    private ProfileCountService profileCountService;
+    
+    public Map<String, Object> getProfileStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        
+        List<FacetCatalogService.FacetValue> industries = facetCatalogService.getTopValues(FacetCatalogService.Facet.INDUSTRY, TOP_N);
+        List<FacetCatalogService.FacetValue> locations = facetCatalogService.getTopValues(FacetCatalogService.Facet.LOCATION, TOP_N);
+        List<FacetCatalogService.FacetValue> experienceLevels =
+            facetCatalogService.getTopValues(FacetCatalogService.Facet.EXPERIENCE_LEVEL, Integer.MAX_VALUE);
+        
+        stats.put("totalProfiles", profileCountService.getEstimate());
+        stats.put("totalIndustries", facetCatalogService.getDistinctCount(FacetCatalogService.Facet.INDUSTRY));
+        stats.put("totalLocations", facetCatalogService.getDistinctCount(FacetCatalogService.Facet.LOCATION));
+        stats.put("experienceLevels", experienceLevels.stream().map(FacetCatalogService.FacetValue::value).toList());
+        stats.put("industries", industries.stream().map(FacetCatalogService.FacetValue::value).toList()); // Top 10
+        stats.put("locations", locations.stream().map(FacetCatalogService.FacetValue::value).toList()); // Top 10
+        stats.put("industryCounts", toCounts(industries));
+        stats.put("locationCounts", toCounts(locations));
+        stats.put("experienceLevelCounts", toCounts(experienceLevels));
+        // False until both the facet catalogue and the row-count baseline have been loaded
+        stats.put("ready", facetCatalogService.isLoaded() && profileCountService.hasBaseline());
+        
+        return stats;
+    }
+    
+    private static Map<String, Long> toCounts(List<FacetCatalogService.FacetValue> values) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        values.forEach(value -> counts.put(value.value(), value.count()));
+        return counts;
+    }
+}
@@ -0,0 +1,14 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.entity.Profile;
+
+import java.util.List;
+
+/**
+ * Published for each import batch written, with the profiles it wrote. Listeners use
+ * {@code @TransactionalEventListener(phase = AFTER_COMMIT, fallbackExecution = true)}, so they
+ * see the batch once the publishing transaction has committed (never if it rolls back), or
+ * straight away when the batch was written outside a transaction.
+ * @param batchId Import batch the profiles belong to
+ */
+public record ProfilesImportedEvent(String batchId, List<Profile> profiles) {}
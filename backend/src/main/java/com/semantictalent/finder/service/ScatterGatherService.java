@@ -0,0 +1,108 @@
+package com.semantictalent.finder.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Runs one task per key in parallel on virtual threads and gathers the results
+ * under a single deadline. Every subtask is owned by the call: when it returns,
+ * subtasks that haven't finished are cancelled, so nothing outlives the request.
+ */
+@Service
+@Slf4j
+public class ScatterGatherService {
+    
+    @Autowired
+    @Qualifier("shardSearchTaskExecutor")
+    private ExecutorService shardSearchExecutor;
+    
+    /**
+     * Outcome of a scatter-gather call
+     * @param results Successful results in completion order
+     * @param failures Keys whose task threw
+     * @param timedOut Keys still running at the deadline (their tasks were cancelled)
+     */
+    public record Gathered<K, T>(Map<K, T> results, Map<K, Throwable> failures, List<K> timedOut, long elapsedMs) {
+        
+        public boolean isComplete() {
+            return failures.isEmpty() && timedOut.isEmpty();
+        }
+    }
+    
+    private record Completion<K, T>(K key, T result, Throwable failure) {}
+    
+    /**
+     * Run task(key) for every key concurrently and wait until all finish or the timeout elapses
+     */
+    public <K, T> Gathered<K, T> scatter(Collection<K> keys, Function<K, T> task, long timeoutMs) {
+        return scatter(keys, task, timeoutMs, (key, result) -> {});
+    }
+    
+    /**
+     * Like scatter, but hands each result to onResult (on the calling thread) as soon as it
+     * arrives, so the caller can merge incrementally while slower tasks are still running
+     */
+    public <K, T> Gathered<K, T> scatter(Collection<K> keys, Function<K, T> task, long timeoutMs,
+                                         BiConsumer<K, T> onResult) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        
+        LinkedBlockingQueue<Completion<K, T>> completions = new LinkedBlockingQueue<>();
+        Map<K, Future<?>> pending = new LinkedHashMap<>();
+        for (K key : keys) {
+            pending.put(key, shardSearchExecutor.submit(() -> {
+                try {
+                    completions.add(new Completion<>(key, task.apply(key), null));
+                } catch (Throwable t) {
+                    completions.add(new Completion<>(key, null, t));
+                }
+            }));
+        }
+        
+        Map<K, T> results = new LinkedHashMap<>();
+        Map<K, Throwable> failures = new LinkedHashMap<>();
+        try {
+            while (!pending.isEmpty()) {
+                long remaining = deadline - System.nanoTime();
+                Completion<K, T> completion = remaining > 0 ? completions.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (completion == null) {
+                    break;
+                }
+                
+                pending.remove(completion.key());
+                if (completion.failure() == null) {
+                    results.put(completion.key(), completion.result());
+                    onResult.accept(completion.key(), completion.result());
+                } else {
+                    failures.put(completion.key(), completion.failure());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Subtasks never outlive the call
+            pending.values().forEach(future -> future.cancel(true));
+        }
+        
+        List<K> timedOut = new ArrayList<>(pending.keySet());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        if (!timedOut.isEmpty()) {
+            log.warn("Scatter-gather deadline of {}ms reached; cancelled {}", timeoutMs, timedOut);
+        }
+        return new Gathered<>(results, failures, timedOut, elapsedMs);
+    }
+}
@@ -0,0 +1,310 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.ToLongFunction;
+
+/**
+ * Online schema changes for existing profile databases (schema.sql only runs when a
+ * database is first created). Catalogue-only DDL runs before Hibernate starts, under a
+ * short lock_timeout; anything that touches every row (backfills, index builds) runs in
+ * keyset batches and CONCURRENTLY in the background once the application is ready.
+ */
+@Service
+@Slf4j
+public class SchemaMigrationService {
+    
+    private static final String PRIMARY = "primary";
+    private static final String ORDINAL_SEQUENCE = "profile_ordinal_seq";
+    private static final String SEARCH_VECTOR_EXPRESSION = "to_tsvector('english', coalesce(searchable_content, ''))";
+    
+    // Substring lookups in SimpleSearchService (ILIKE '%term%')
+    private static final Map<String, String> TRIGRAM_INDEXES = Map.of(
+        "idx_profiles_location_trgm", "gin(location gin_trgm_ops) WHERE location IS NOT NULL",
+        "idx_profiles_full_name_trgm", "gin(full_name gin_trgm_ops)",
+        "idx_profiles_job_title_trgm", "gin(job_title gin_trgm_ops) WHERE job_title IS NOT NULL",
+        "idx_profiles_company_name_trgm", "gin(company_name gin_trgm_ops) WHERE company_name IS NOT NULL");
+    
+    @Value("${app.schema.backfill-batch-size:5000}")
+    private int backfillBatchSize;
+    
+    @Value("${app.schema.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    @Qualifier("dataImportTaskExecutor")
+    private Executor dataImportExecutor;
+    
+    /**
+     * Runs before the EntityManagerFactory (see SchemaMigrationConfig)
+     */
+    @PostConstruct
+    public void migrateCatalog() {
+        databases().forEach(this::migrateCatalog);
+    }
+    
+    /**
+     * Repeat the catalogue steps for tables Hibernate has just created, then start the backfills
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateData() {
+        Map<String, JdbcTemplate> databases = databases();
+        databases.forEach(this::migrateCatalog);
+        dataImportExecutor.execute(() -> databases.forEach(this::migrateRows));
+    }
+    
+    private void migrateCatalog(String database, JdbcTemplate jdbc) {
+        try {
+            if (!tableExists(jdbc, "profiles")) {
+                return;
+            }
+            boolean primary = PRIMARY.equals(database);
+            
+            if (primary) {
+                // FacetCatalogService's summary table (no entity, so Hibernate never creates it)
+                executeDdl(jdbc,
+                    "CREATE TABLE IF NOT EXISTS profile_facets (facet VARCHAR(50) NOT NULL, value TEXT NOT NULL, " +
+                    "profile_count BIGINT NOT NULL DEFAULT 0, updated_at TIMESTAMP DEFAULT NOW(), PRIMARY KEY (facet, value))");
+            }
+            
+            // Nullable with no default: a catalogue-only change, no table rewrite
+            executeDdl(jdbc, "ALTER TABLE profiles ADD COLUMN IF NOT EXISTS ordinal INTEGER");
+            if (primary) {
+                // Every database draws ordinals from the primary's sequence; defaults only apply to new rows
+                executeDdl(jdbc,
+                    "CREATE SEQUENCE IF NOT EXISTS " + ORDINAL_SEQUENCE + " AS INTEGER MINVALUE 0 START WITH 0 INCREMENT BY 1",
+                    "ALTER TABLE profiles ALTER COLUMN ordinal SET DEFAULT nextval('" + ORDINAL_SEQUENCE + "')",
+                    "ALTER SEQUENCE " + ORDINAL_SEQUENCE + " OWNED BY profiles.ordinal");
+            }
+            
+            // Plain tsvector kept current by a trigger: a STORED generated column would rewrite the table.
+            // Databases that already have the generated column keep it.
+            executeDdl(jdbc, "ALTER TABLE profiles ADD COLUMN IF NOT EXISTS search_vector tsvector");
+            if (!isGeneratedColumn(jdbc, "profiles", "search_vector")) {
+                executeDdl(jdbc,
+                    "CREATE OR REPLACE FUNCTION profiles_search_vector_update() RETURNS trigger AS $$ " +
+                    "BEGIN NEW.search_vector := " + SEARCH_VECTOR_EXPRESSION.replace("searchable_content", "NEW.searchable_content") +
+                    "; RETURN NEW; END $$ LANGUAGE plpgsql",
+                    "CREATE OR REPLACE TRIGGER profiles_search_vector_update " +
+                    "BEFORE INSERT OR UPDATE OF searchable_content ON profiles " +
+                    "FOR EACH ROW EXECUTE FUNCTION profiles_search_vector_update()");
+            }
+        } catch (Exception e) {
+            log.warn("Schema catalogue migration failed on {}: {}", database, e.getMessage());
+        }
+    }
+    
+    private void migrateRows(String database, JdbcTemplate jdbc) {
+        try {
+            if (!tableExists(jdbc, "profiles")) {
+                return;
+            }
+            backfillOrdinals(database, jdbc);
+            ensureIndexConcurrently(jdbc, "idx_profiles_ordinal",
+                "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_profiles_ordinal ON profiles(ordinal)");
+            setOrdinalNotNull(database, jdbc);
+            
+            backfillSearchVectors(database, jdbc);
+            ensureIndexConcurrently(jdbc, "idx_profiles_search_vector",
+                "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_profiles_search_vector ON profiles USING gin(search_vector)");
+            // Superseded by search_vector: the old expression index re-parsed searchable_content for ranking
+            jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS idx_profiles_full_text");
+            
+            jdbc.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            TRIGRAM_INDEXES.forEach((indexName, definition) -> ensureIndexConcurrently(jdbc, indexName,
+                "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName + " ON profiles USING " + definition));
+        } catch (Exception e) {
+            log.error("Schema data migration failed on {}", database, e);
+        }
+    }
+    
+    /**
+     * Give rows stored before the ordinal column existed an ordinal, drawn from the primary's sequence
+     */
+    private void backfillOrdinals(String database, JdbcTemplate jdbc) {
+        backfill(database, jdbc, "ordinal", "ordinal IS NULL", pending -> {
+            List<Integer> ordinals = profileOrdinalService.allocateOrdinals(pending.size());
+            List<Object[]> args = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                args.add(new Object[]{ordinals.get(i), pending.get(i)});
+            }
+            int[] updated = jdbc.batchUpdate("UPDATE profiles SET ordinal = ? WHERE id = ? AND ordinal IS NULL", args);
+            long filled = 0;
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] > 0) {
+                    profileOrdinalService.register(ordinals.get(i), pending.get(i));
+                    filled++;
+                }
+            }
+            return filled;
+        });
+    }
+    
+    private void backfillSearchVectors(String database, JdbcTemplate jdbc) {
+        if (isGeneratedColumn(jdbc, "profiles", "search_vector")) {
+            return;
+        }
+        backfill(database, jdbc, "search_vector", "search_vector IS NULL", pending -> jdbc.update(
+            "UPDATE profiles SET search_vector = " + SEARCH_VECTOR_EXPRESSION +
+            " WHERE id = ANY (?) AND search_vector IS NULL",
+            ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", pending.toArray()))));
+    }
+    
+    /**
+     * Walk the primary key in keyset batches and hand the ids whose pendingCondition holds to
+     * fill, which returns the number of rows it updated. The condition is only selected, never
+     * filtered on, so a batch can't degrade into a sequential scan; each batch commits on its own.
+     */
+    private void backfill(String database, JdbcTemplate jdbc, String column, String pendingCondition,
+                          ToLongFunction<List<UUID>> fill) {
+        long startTime = System.currentTimeMillis();
+        long filled = 0;
+        UUID lastId = null;
+        while (true) {
+            List<UUID> ids = new ArrayList<>(backfillBatchSize);
+            List<UUID> pending = new ArrayList<>();
+            RowCallbackHandler collect = rs -> {
+                UUID id = rs.getObject(1, UUID.class);
+                ids.add(id);
+                if (rs.getBoolean(2)) {
+                    pending.add(id);
+                }
+            };
+            if (lastId == null) {
+                jdbc.query("SELECT id, " + pendingCondition + " FROM profiles ORDER BY id LIMIT ?",
+                    collect, backfillBatchSize);
+            } else {
+                jdbc.query("SELECT id, " + pendingCondition + " FROM profiles WHERE id > ? ORDER BY id LIMIT ?",
+                    collect, lastId, backfillBatchSize);
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            if (!pending.isEmpty()) {
+                filled += fill.applyAsLong(pending);
+            }
+        }
+        if (filled > 0) {
+            log.info("Backfilled {} on {} rows of {} in {}ms", column, filled, database, System.currentTimeMillis() - startTime);
+        }
+    }
+    
+    /**
+     * Make ordinal NOT NULL once every row has one (keyset pagination skips rows without one).
+     * SET NOT NULL alone would scan the table under an ACCESS EXCLUSIVE lock; a CHECK constraint
+     * added NOT VALID and then validated only takes a lock that lets writes continue, and
+     * SET NOT NULL reuses it instead of scanning.
+     */
+    private void setOrdinalNotNull(String database, JdbcTemplate jdbc) {
+        if (Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT attnotnull FROM pg_attribute WHERE attrelid = to_regclass('profiles') AND attname = 'ordinal'",
+                Boolean.class))) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        executeDdl(jdbc,
+            "ALTER TABLE profiles DROP CONSTRAINT IF EXISTS profiles_ordinal_not_null",
+            "ALTER TABLE profiles ADD CONSTRAINT profiles_ordinal_not_null CHECK (ordinal IS NOT NULL) NOT VALID");
+        jdbc.execute("ALTER TABLE profiles VALIDATE CONSTRAINT profiles_ordinal_not_null");
+        executeDdl(jdbc,
+            "ALTER TABLE profiles ALTER COLUMN ordinal SET NOT NULL",
+            "ALTER TABLE profiles DROP CONSTRAINT profiles_ordinal_not_null");
+        log.info("Made profiles.ordinal NOT NULL on {} in {}ms", database, System.currentTimeMillis() - startTime);
+    }
+    
+    /**
+     * Build an index without blocking writes; an invalid leftover from an interrupted build is dropped first
+     */
+    private void ensureIndexConcurrently(JdbcTemplate jdbc, String indexName, String createSql) {
+        Boolean valid = jdbc.query(
+            "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+            "WHERE c.relname = ? AND pg_table_is_visible(c.oid)",
+            rs -> rs.next() ? rs.getBoolean(1) : null, indexName);
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            log.warn("Dropping invalid index {} left by an interrupted build", indexName);
+            jdbc.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+        }
+        long startTime = System.currentTimeMillis();
+        jdbc.execute(createSql);
+        log.info("Built index {} in {}ms", indexName, System.currentTimeMillis() - startTime);
+    }
+    
+    /**
+     * Run DDL on one connection under lock_timeout, so a long-running query holding the
+     * table fails the migration step instead of queueing every other session behind it
+     */
+    private void executeDdl(JdbcTemplate jdbc, String... statements) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET lock_timeout = " + lockTimeoutMs);
+                try {
+                    for (String sql : statements) {
+                        statement.execute(sql);
+                    }
+                } finally {
+                    statement.execute("RESET lock_timeout");
+                }
+            }
+            return null;
+        });
+    }
+    
+    private boolean isGeneratedColumn(JdbcTemplate jdbc, String table, String column) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_attribute WHERE attrelid = to_regclass(?) AND attname = ? " +
+            "AND attgenerated <> '' AND NOT attisdropped)", Boolean.class, table, column));
+    }
+    
+    private boolean tableExists(JdbcTemplate jdbc, String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+    
+    private Map<String, JdbcTemplate> databases() {
+        Map<String, JdbcTemplate> databases = new LinkedHashMap<>();
+        databases.put(PRIMARY, jdbcTemplate);
+        if (shardConfig.isEnabled() && shardConfig.getShards() != null) {
+            for (String shardId : shardConfig.getAllActiveShardIds()) {
+                JdbcTemplate shard = shardDataSourceRouter.getJdbcTemplate(shardId);
+                if (shard != null) {
+                    databases.put(shardId, shard);
+                }
+            }
+        }
+        return databases;
+    }
+}
@@ -0,0 +1,234 @@
+package com.semantictalent.finder.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.semantictalent.finder.dto.ProfileSummaryDto;
+import com.semantictalent.finder.dto.SearchRequestDto;
+import com.semantictalent.finder.dto.SearchResultDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Complete search responses keyed by a canonical form of the request, so repeated
+ * searches (and re-requests of the same page) skip embedding and every shard.
+ * Bounded by entry count and estimated bytes; dropped wholesale whenever an import
+ * batch commits, since new profiles can change any ranking.
+ */
+@Service
+@Slf4j
+public class SearchResultCache {
+    
+    public static final String SINGLE = "single";
+    public static final String SHARDED = "sharded";
+    
+    @Value("${app.search.result-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.search.result-cache.max-entries:10000}")
+    private long maxEntries;
+    
+    @Value("${app.search.result-cache.max-bytes:67108864}")
+    private long maxBytes;
+    
+    @Value("${app.search.result-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Cache<String, SearchResultDto> cache;
+    
+    // Bumped on every invalidation, so a search that started before it can't cache a stale answer
+    private final AtomicLong generation = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        // Every entry weighs at least maxBytes / maxEntries, which caps the entry count too
+        long minWeight = Math.max(1L, maxBytes / Math.max(1L, maxEntries));
+        cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, SearchResultDto result) ->
+                (int) Math.min(Integer.MAX_VALUE, Math.max(minWeight, estimateBytes(key, result))))
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.results");
+    }
+    
+    /**
+     * Cached response for the request, as a copy the caller may modify; null on a miss
+     * @param namespace SINGLE or SHARDED, so the two search paths never share entries
+     */
+    public SearchResultDto get(String namespace, SearchRequestDto request) {
+        if (!enabled) {
+            return null;
+        }
+        SearchResultDto cached = cache.getIfPresent(namespace + "|" + canonicalKey(request));
+        return cached != null ? copyOf(cached) : null;
+    }
+    
+    /**
+     * Current invalidation generation; take it before running the search whose result will be put
+     */
+    public long generation() {
+        return generation.get();
+    }
+    
+    /**
+     * Cache a response; failed and partial responses are never cached, nor are ones computed
+     * before the latest invalidation
+     * @param generation generation() as of when the search started
+     */
+    public void put(String namespace, SearchRequestDto request, SearchResultDto result, long generation) {
+        if (!enabled || result == null || !result.isSuccess() || result.isPartialResults()) {
+            return;
+        }
+        String key = namespace + "|" + canonicalKey(request);
+        cache.put(key, copyOf(result));
+        if (this.generation.get() != generation) {
+            cache.invalidate(key);
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfilesImported(ProfilesImportedEvent event) {
+        long size = cache.estimatedSize();
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        if (size > 0) {
+            log.debug("Import batch {} committed; dropped {} cached search results", event.batchId(), size);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> cacheStats = new HashMap<>();
+        cacheStats.put("enabled", enabled);
+        cacheStats.put("size", cache.estimatedSize());
+        cacheStats.put("hitRate", stats.hitRate());
+        cacheStats.put("evictions", stats.evictionCount());
+        return cacheStats;
+    }
+    
+    /**
+     * Deterministic serialization of everything that affects the response: whitespace in
+     * the query is collapsed, filter lists are trimmed, de-duplicated and sorted, and null
+     * and empty filters are the same. The latency budget is left out (partial responses
+     * aren't cached, so it can't change a cached answer).
+     */
+    static String canonicalKey(SearchRequestDto request) {
+        return (request.getMode() != null ? request.getMode() : SearchRequestDto.SearchMode.SEMANTIC)
+            + "|" + (request.getQuery() != null ? request.getQuery().trim().replaceAll("\\s+", " ") : "")
+            + "|" + filterKey(request);
+    }
+    
+    /**
+     * Canonical form of everything in the request except the mode and query text
+     */
+    static String filterKey(SearchRequestDto request) {
+        StringBuilder key = new StringBuilder(64);
+        key.append(request.getLimit()).append('|').append(request.getThreshold());
+        appendList(key, "ind", request.getIndustries());
+        appendList(key, "loc", request.getLocations());
+        appendList(key, "cty", request.getCountries());
+        appendList(key, "req", request.getRequiredSkills());
+        appendList(key, "exc", request.getExcludedSkills());
+        appendValue(key, "exp", request.getExperienceLevel() != null ? request.getExperienceLevel().trim() : null);
+        appendValue(key, "minY", request.getMinYearsExperience());
+        appendValue(key, "maxY", request.getMaxYearsExperience());
+        appendValue(key, "minQ", request.getMinDataQualityScore());
+        return key.toString();
+    }
+    
+    private static void appendList(StringBuilder key, String name, List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        TreeSet<String> canonical = new TreeSet<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                canonical.add(value.trim());
+            }
+        }
+        if (!canonical.isEmpty()) {
+            key.append('|').append(name).append('=').append(String.join("\u001f", canonical));
+        }
+    }
+    
+    private static void appendValue(StringBuilder key, String name, Object value) {
+        if (value != null) {
+            key.append('|').append(name).append('=').append(value);
+        }
+    }
+    
+    static SearchResultDto copyOf(SearchResultDto result) {
+        return SearchResultDto.builder()
+            .profiles(result.getProfiles() != null ? List.copyOf(result.getProfiles()) : List.of())
+            .totalResults(result.getTotalResults())
+            .executionTimeMs(result.getExecutionTimeMs())
+            .query(result.getQuery())
+            .threshold(result.getThreshold())
+            .processedQuery(result.getProcessedQuery())
+            .suggestions(result.getSuggestions())
+            .aggregations(result.getAggregations())
+            .metadata(result.getMetadata())
+            .partialAggregates(result.getPartialAggregates())
+            .shardId(result.getShardId())
+            .shardsQueried(result.getShardsQueried())
+            .skippedShards(result.getSkippedShards())
+            .partialResults(result.isPartialResults())
+            .success(result.isSuccess())
+            .errorMessage(result.getErrorMessage())
+            .build();
+    }
+    
+    /**
+     * Rough retained size: strings at two bytes per char plus object overhead
+     */
+    private static long estimateBytes(String key, SearchResultDto result) {
+        long bytes = 256 + 2L * key.length();
+        if (result.getProfiles() != null) {
+            for (ProfileSummaryDto profile : result.getProfiles()) {
+                bytes += 160 + 2L * (length(profile.getFullName()) + length(profile.getHeadline())
+                    + length(profile.getLocation()) + length(profile.getLocationCountry())
+                    + length(profile.getIndustry()) + length(profile.getCompanyName())
+                    + length(profile.getJobTitle()) + length(profile.getLinkedinUrl()));
+                bytes += listBytes(profile.getAllSkills()) + listBytes(profile.getMatchingSkills())
+                    + listBytes(profile.getTechnicalSkills()) + listBytes(profile.getSoftSkills());
+            }
+        }
+        bytes += listBytes(result.getSuggestions());
+        return bytes;
+    }
+    
+    private static long listBytes(List<String> values) {
+        if (values == null) {
+            return 0L;
+        }
+        long bytes = 16L + 8L * values.size();
+        for (String value : values) {
+            bytes += 40 + 2L * length(value);
+        }
+        return bytes;
+    }
+    
+    private static int length(String value) {
+        return Objects.requireNonNullElse(value, "").length();
+    }
+}
@@ -21,12 +21,25 @@ public class SearchService {
     @Autowired
     private SearchQueryRepository searchQueryRepository;
     
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Autowired
+    private FacetCatalogService facetCatalogService;
+    
     public SearchResultDto performSearch(SearchRequestDto request, String userIp) {
         long startTime = System.currentTimeMillis();
         
         try {
-            // Perform the actual search
-            SearchResultDto result = semanticSearchService.searchProfiles(request);
+            // Identical requests since the last import are answered from memory
+            SearchResultDto result = searchResultCache.get(SearchResultCache.SINGLE, request);
+            if (result != null) {
+                result.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            } else {
+                long generation = searchResultCache.generation();
+                result = semanticSearchService.searchProfiles(request);
+                searchResultCache.put(SearchResultCache.SINGLE, request, result, generation);
+            }
             
             // Log the search query for analytics
             logSearchQuery(request, result, userIp, (int)(System.currentTimeMillis() - startTime));
@@ -44,15 +57,7 @@ public class SearchService {
     }
     
     public Map<String, List<String>> getAvailableFilters() {
-        Map<String, List<String>> filters = new HashMap<>();
-        
-        // This would typically come from the database
-        // For now, return empty structure - will be implemented with actual data
-        filters.put("industries", List.of());
-        filters.put("locations", List.of());
-        filters.put("experienceLevels", List.of());
-        
-        return filters;
+        return facetCatalogService.getFilterValues();
     }
     
     private void logSearchQuery(SearchRequestDto request, SearchResultDto result, String userIp, int executionTime) {
@@ -0,0 +1,206 @@
+package com.semantictalent.finder.service;
+
+import com.pgvector.PGvector;
+import com.semantictalent.finder.dto.SearchRequestDto;
+import com.semantictalent.finder.dto.SearchResultDto;
+import com.semantictalent.finder.util.CosineLshIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Second-tier search cache for paraphrased queries ("senior java dev fintech" vs "Senior
+ * Java developers in fintech"). After the query is embedded, previously answered SEMANTIC
+ * searches whose embedding has cosine similarity above the threshold, and whose filters,
+ * limit and threshold are identical, are looked up through an LSH index over the cached
+ * query vectors; on a match their top k is reused without touching the vector index.
+ * Dropped whenever an import batch commits, like the exact-match SearchResultCache.
+ */
+@Service
+@Slf4j
+public class SemanticQueryCache {
+    
+    private static final long LSH_SEED = 0x5eed_cafeL;
+    
+    @Value("${app.search.semantic-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.search.semantic-cache.similarity-threshold:0.97}")
+    private double similarityThreshold;
+    
+    @Value("${app.search.semantic-cache.max-entries:2000}")
+    private int maxEntries;
+    
+    @Value("${app.search.semantic-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+    
+    @Value("${app.search.semantic-cache.lsh-tables:8}")
+    private int lshTables;
+    
+    @Value("${app.search.semantic-cache.lsh-bits:12}")
+    private int lshBits;
+    
+    private record Entry(String namespace, String filterKey, float[] vector, SearchResultDto result, long createdAtMs) {}
+    
+    // Insertion order = age, so eviction and expiry work from the head; guarded by lock
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>();
+    private CosineLshIndex index;
+    private int nextId;
+    private long generation;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    /**
+     * Current invalidation generation; take it before running the search whose result will be put
+     */
+    public long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Cached response of the most similar earlier query with the same filters, as a copy
+     * carrying this request's query text; null if none is similar enough
+     * @param namespace SearchResultCache.SINGLE or SHARDED
+     */
+    public SearchResultDto find(String namespace, SearchRequestDto request, PGvector queryEmbedding) {
+        if (!isCacheable(request, queryEmbedding)) {
+            return null;
+        }
+        
+        float[] vector = queryEmbedding.toArray();
+        String filterKey = SearchResultCache.filterKey(request);
+        long oldestValid = System.currentTimeMillis() - ttlSeconds * 1000;
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        
+        lock.readLock().lock();
+        try {
+            if (index == null || index.getDimensions() != vector.length) {
+                misses.increment();
+                return null;
+            }
+            for (int id : index.candidates(vector)) {
+                Entry entry = entries.get(id);
+                if (entry == null || entry.createdAtMs() < oldestValid || !entry.namespace().equals(namespace)
+                    || !entry.filterKey().equals(filterKey)) {
+                    continue;
+                }
+                double similarity = CosineLshIndex.cosine(vector, entry.vector());
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        if (best == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        log.debug("Query '{}' reuses the results of '{}' (cosine {})", request.getQuery(), best.result().getQuery(), bestSimilarity);
+        SearchResultDto result = SearchResultCache.copyOf(best.result());
+        result.setQuery(request.getQuery());
+        result.setProcessedQuery(request.getQuery());
+        return result;
+    }
+    
+    /**
+     * Remember a SEMANTIC response under its query embedding; failed and partial responses,
+     * and ones computed before the latest invalidation, are not cached
+     * @param generation generation() as of when the search started
+     */
+    public void put(String namespace, SearchRequestDto request, PGvector queryEmbedding, SearchResultDto result,
+                    long generation) {
+        if (!isCacheable(request, queryEmbedding) || result == null || !result.isSuccess() || result.isPartialResults()) {
+            return;
+        }
+        
+        float[] vector = queryEmbedding.toArray();
+        Entry entry = new Entry(namespace, SearchResultCache.filterKey(request), vector,
+            SearchResultCache.copyOf(result), System.currentTimeMillis());
+        
+        lock.writeLock().lock();
+        try {
+            if (this.generation != generation) {
+                return;
+            }
+            if (index == null || index.getDimensions() != vector.length) {
+                // First entry, or the embedding model changed: start over
+                entries.clear();
+                index = new CosineLshIndex(vector.length, lshTables, lshBits, LSH_SEED);
+            }
+            
+            long oldestValid = System.currentTimeMillis() - ttlSeconds * 1000;
+            Iterator<Map.Entry<Integer, Entry>> oldest = entries.entrySet().iterator();
+            while (oldest.hasNext()) {
+                Map.Entry<Integer, Entry> head = oldest.next();
+                if (entries.size() < maxEntries && head.getValue().createdAtMs() >= oldestValid) {
+                    break;
+                }
+                index.remove(head.getKey());
+                oldest.remove();
+            }
+            
+            int id = nextId++;
+            entries.put(id, entry);
+            index.add(id, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProfilesImported(ProfilesImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            generation++;
+            entries.clear();
+            if (index != null) {
+                index.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        lock.readLock().lock();
+        try {
+            stats.put("size", entries.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("enabled", enabled);
+        stats.put("similarityThreshold", similarityThreshold);
+        stats.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        return stats;
+    }
+    
+    private boolean isCacheable(SearchRequestDto request, PGvector queryEmbedding) {
+        // Only pure vector search depends on the embedding alone; hybrid also ranks the exact words
+        SearchRequestDto.SearchMode mode = request.getMode() != null ? request.getMode() : SearchRequestDto.SearchMode.SEMANTIC;
+        return enabled && queryEmbedding != null && mode == SearchRequestDto.SearchMode.SEMANTIC;
+    }
+}
@@ -5,13 +5,25 @@ import com.semantictalent.finder.dto.SearchResultDto;
 import com.semantictalent.finder.dto.ProfileSummaryDto;
 import com.semantictalent.finder.entity.Profile;
 import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.repository.ProfileRepository.ScoredProfileId;
+import com.semantictalent.finder.util.ReciprocalRankFusion;
+import com.semantictalent.finder.util.SearchAggregates;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.pgvector.PGvector;
 import lombok.extern.slf4j.Slf4j;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.UUID;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,59 +36,213 @@ public class SemanticSearchService {
     @Autowired
     private EmbeddingService embeddingService;
     
+    @Autowired
+    private SemanticQueryCache semanticQueryCache;
+    
+    @Autowired
+    private ProfileCountService profileCountService;
+    
+    @Autowired
+    @Qualifier("hybridSearchTaskExecutor")
+    private Executor hybridSearchExecutor;
+    
+    @Value("${app.search.hybrid.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${app.search.hybrid.candidate-multiplier:3}")
+    private int hybridCandidateMultiplier;
+    
+    @Value("${app.search.hybrid.min-candidates:50}")
+    private int hybridMinCandidates;
+    
+    @Value("${app.search.aggregations.top-n:20}")
+    private int aggregationTopN;
+    
+    @Value("${app.search.aggregations.high-quality-threshold:0.8}")
+    private double highQualityThreshold;
+    
     public SearchResultDto searchProfiles(SearchRequestDto request) {
         long startTime = System.currentTimeMillis();
+        SearchRequestDto.SearchMode mode = request.getMode() != null ? request.getMode() : SearchRequestDto.SearchMode.SEMANTIC;
         
         try {
-            log.info("Performing semantic search for query: {}", request.getQuery());
+            log.info("Performing {} search for query: {}", mode, request.getQuery());
             
             // Check if we have any profiles in the database first
-            long profileCount = profileRepository.count();
-            if (profileCount == 0) {
+            if (profileCountService.isPrimaryEmpty()) {
                 log.warn("No profiles found in database. Returning empty results.");
                 return createEmptySearchResult(request, startTime);
             }
             
-            // 1. Generate embedding for search query
-            PGvector queryEmbedding;
-            try {
-                queryEmbedding = embeddingService.generateEmbedding(request.getQuery());
-            } catch (Exception e) {
-                log.error("Failed to generate embedding for query. This may be due to missing API key or service unavailability.", e);
-                return createEmptySearchResult(request, startTime);
+            // 1. Retrieve ranked candidates for the requested mode; a paraphrase of an
+            //    earlier SEMANTIC query reuses its answer once the query is embedded
+            PGvector queryEmbedding = null;
+            long semanticCacheGeneration = semanticQueryCache.generation();
+            List<ScoredProfileId> ranked;
+            // HYBRID draws more candidates than it returns: id -> cosine similarity (null if full-text only)
+            Map<UUID, Double> hybridPool = new LinkedHashMap<>();
+            if (mode == SearchRequestDto.SearchMode.SEMANTIC) {
+                queryEmbedding = generateQueryEmbedding(request.getQuery());
+                if (queryEmbedding == null) {
+                    ranked = List.of();
+                } else {
+                    SearchResultDto paraphrased = semanticQueryCache.find(SearchResultCache.SINGLE, request, queryEmbedding);
+                    if (paraphrased != null) {
+                        paraphrased.setSuggestions(generateSuggestions(request.getQuery()));
+                        paraphrased.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                        return paraphrased;
+                    }
+                    ranked = profileRepository.findSimilarProfileIds(queryEmbedding, request.getThreshold(), request.getLimit());
+                }
+            } else {
+                ranked = mode == SearchRequestDto.SearchMode.FULL_TEXT
+                    ? fullTextCandidates(request.getQuery(), request.getLimit())
+                    : hybridCandidates(request, hybridPool);
             }
             
-            // 2. Perform vector similarity search
-            List<Profile> similarProfiles = profileRepository.findSimilarProfiles(
-                queryEmbedding, 
-                request.getThreshold(), 
-                request.getLimit()
-            );
-            
-            // 3. Convert to DTOs with similarity scores
-            List<ProfileSummaryDto> results = similarProfiles.stream()
-                .map(this::convertToSummaryDto)
-                .collect(Collectors.toList());
+            // 2. Load the winning profiles and convert to DTOs with their scores, aggregating as we go;
+            //    candidates that didn't make the page are aggregated from their facet columns
+            SearchAggregates aggregates = new SearchAggregates(highQualityThreshold);
+            List<ProfileSummaryDto> results = loadRankedProfiles(ranked, aggregates);
+            aggregateRemainingCandidates(hybridPool, ranked, aggregates);
             
-            // 4. Build response
+            // 3. Build response
             SearchResultDto response = new SearchResultDto();
             response.setProfiles(results);
             response.setTotalResults(results.size());
             response.setProcessedQuery(request.getQuery());
             response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
             response.setSuggestions(generateSuggestions(request.getQuery()));
+            aggregates.applyTo(response, mode, aggregationTopN);
+            response.setSuccess(true);
             
-            log.info("Search completed in {}ms, found {} profiles", 
-                response.getExecutionTimeMs(), results.size());
+            log.info("{} search completed in {}ms, found {} profiles", 
+                mode, response.getExecutionTimeMs(), results.size());
+            semanticQueryCache.put(SearchResultCache.SINGLE, request, queryEmbedding, response, semanticCacheGeneration);
             
             return response;
             
         } catch (Exception e) {
-            log.error("Error performing semantic search", e);
+            log.error("Error performing {} search", mode, e);
             return createEmptySearchResult(request, startTime);
         }
     }
     
+    /**
+     * Vector (ANN) candidates; an empty list if the query embedding can't be generated
+     */
+    private List<ScoredProfileId> semanticCandidates(SearchRequestDto request, int depth) {
+        PGvector queryEmbedding = generateQueryEmbedding(request.getQuery());
+        if (queryEmbedding == null) {
+            return List.of();
+        }
+        
+        return profileRepository.findSimilarProfileIds(queryEmbedding, request.getThreshold(), depth);
+    }
+    
+    /**
+     * Query embedding, or null if it can't be generated
+     */
+    private PGvector generateQueryEmbedding(String query) {
+        try {
+            return embeddingService.generateEmbedding(query);
+        } catch (Exception e) {
+            log.error("Failed to generate embedding for query. This may be due to missing API key or service unavailability.", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Keyword candidates from the full-text GIN index; never calls the embedding service
+     */
+    private List<ScoredProfileId> fullTextCandidates(String query, int depth) {
+        return profileRepository.findFullTextProfileIds(query, depth);
+    }
+    
+    /**
+     * Run full-text and ANN retrieval in parallel and merge with reciprocal-rank fusion
+     * @param pool Filled with every candidate of both legs and its cosine similarity
+     */
+    private List<ScoredProfileId> hybridCandidates(SearchRequestDto request, Map<UUID, Double> pool) {
+        int depth = Math.max(request.getLimit() * hybridCandidateMultiplier, hybridMinCandidates);
+        
+        CompletableFuture<List<ScoredProfileId>> fullTextFuture = CompletableFuture.supplyAsync(
+            () -> fullTextCandidates(request.getQuery(), depth), hybridSearchExecutor);
+        List<ScoredProfileId> semantic = semanticCandidates(request, depth);
+        
+        List<ScoredProfileId> fullText;
+        try {
+            fullText = fullTextFuture.join();
+        } catch (Exception e) {
+            log.warn("Full-text leg of hybrid search failed, using semantic results only: {}", e.getMessage());
+            fullText = List.of();
+        }
+        
+        // Keep each profile's cosine similarity alongside its fused score
+        Map<UUID, Double> cosineById = new HashMap<>();
+        semantic.forEach(candidate -> cosineById.put(candidate.getId(), candidate.getScore()));
+        pool.putAll(cosineById);
+        fullText.forEach(candidate -> pool.putIfAbsent(candidate.getId(), null));
+        
+        return ReciprocalRankFusion.fuse(List.of(semantic, fullText), ScoredProfileId::getId, rrfK, request.getLimit())
+            .stream()
+            .map(fused -> (ScoredProfileId) new FusedProfileId(fused.item().getId(), cosineById.get(fused.item().getId()), fused.score()))
+            .toList();
+    }
+    
+    private List<ProfileSummaryDto> loadRankedProfiles(List<ScoredProfileId> ranked, SearchAggregates aggregates) {
+        if (ranked.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<UUID, Profile> profilesById = profileRepository.findAllById(
+                ranked.stream().map(ScoredProfileId::getId).toList()).stream()
+            .collect(Collectors.toMap(Profile::getId, Function.identity()));
+        
+        List<ProfileSummaryDto> results = new ArrayList<>(ranked.size());
+        for (ScoredProfileId candidate : ranked) {
+            Profile profile = profilesById.get(candidate.getId());
+            if (profile != null) {
+                ProfileSummaryDto dto = convertToSummaryDto(profile);
+                dto.setSimilarityScore(candidate.getScore());
+                if (candidate instanceof FusedProfileId fusedId) {
+                    dto.setFusedScore(fusedId.fusedScore());
+                }
+                results.add(dto);
+                aggregates.add(profile.getIndustry(), profile.getLocation(), profile.getSkills(),
+                    candidate.getScore(), profile.getDataQualityScore());
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Add the pooled candidates missing from ranked, reading only their facet columns
+     */
+    private void aggregateRemainingCandidates(Map<UUID, Double> pool, List<ScoredProfileId> ranked,
+                                              SearchAggregates aggregates) {
+        ranked.forEach(candidate -> pool.remove(candidate.getId()));
+        if (pool.isEmpty()) {
+            return;
+        }
+        
+        for (ProfileRepository.ProfileFacets facets : profileRepository.findFacetsByIdIn(pool.keySet())) {
+            aggregates.add(facets.getIndustry(), facets.getLocation(), facets.getSkills(),
+                pool.get(facets.getId()), facets.getDataQualityScore());
+        }
+    }
+    
+    /**
+     * HYBRID candidate: score is the cosine similarity (null for full-text-only matches)
+     */
+    private record FusedProfileId(UUID id, Double score, double fusedScore) implements ScoredProfileId {
+        @Override
+        public UUID getId() { return id; }
+        
+        @Override
+        public Double getScore() { return score; }
+    }
+    
     private SearchResultDto createEmptySearchResult(SearchRequestDto request, long startTime) {
         SearchResultDto response = new SearchResultDto();
         response.setProfiles(new ArrayList<>());
@@ -122,9 +288,6 @@ public class SemanticSearchService {
         dto.setCompanyName(profile.getCompanyName());
         dto.setJobTitle(profile.getJobTitle());
         
-        // TODO: Calculate actual similarity score from vector distance
-        dto.setSimilarityScore(0.85); // Placeholder
-        
         // TODO: Implement skill matching logic
         dto.setMatchingSkills(profile.getSkills() != null ? 
             Arrays.asList(profile.getSkills()).subList(0, Math.min(3, profile.getSkills().length)) : 
@@ -0,0 +1,147 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.repository.ShardProfileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes an import batch to all shards at once: each shard's profiles go to its own
+ * database on their own virtual thread, in transactions of the shard's write batch size.
+ * Every transaction commits on its own and is retried after transient errors (the insert
+ * skips ids that already exist, so a retry never duplicates rows), so one slow or failing
+ * shard doesn't hold back or roll back the others.
+ */
+@Service
+@Slf4j
+public class ShardBulkWriter {
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private ShardProfileRepository shardProfileRepository;
+    
+    @Autowired
+    private ProfileRepository profileRepository;
+    
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    @Qualifier("shardWriteTaskExecutor")
+    private ExecutorService shardWriteExecutor;
+    
+    /**
+     * Outcome of writing one shard's profiles
+     * @param written Profiles committed (including ones that already existed)
+     * @param failed Rows in batches that still failed after the retries
+     * @param error Last error, null if everything was written
+     */
+    public record ShardWriteResult(String shardId, List<Profile> written, int failed, long elapsedMs, String error) {}
+    
+    /**
+     * Write every shard's profiles concurrently and wait for all of them.
+     * Profiles must already have their ordinals assigned.
+     */
+    public Map<String, ShardWriteResult> writeAll(Map<String, List<Profile>> shardBatches) {
+        Map<String, Future<ShardWriteResult>> pending = new LinkedHashMap<>();
+        shardBatches.forEach((shardId, profiles) ->
+            pending.put(shardId, shardWriteExecutor.submit(() -> writeShard(shardId, profiles))));
+        
+        Map<String, ShardWriteResult> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<ShardWriteResult>> entry : pending.entrySet()) {
+            String shardId = entry.getKey();
+            try {
+                results.put(shardId, entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.values().forEach(future -> future.cancel(true));
+                results.put(shardId, new ShardWriteResult(shardId, List.of(), shardBatches.get(shardId).size(), 0L, "Interrupted"));
+            } catch (ExecutionException e) {
+                results.put(shardId, new ShardWriteResult(shardId, List.of(), shardBatches.get(shardId).size(), 0L,
+                    e.getCause().getMessage()));
+            }
+        }
+        return results;
+    }
+    
+    private ShardWriteResult writeShard(String shardId, List<Profile> profiles) {
+        long startTime = System.currentTimeMillis();
+        int batchSize = writeBatchSize(shardId);
+        List<Profile> written = new ArrayList<>(profiles.size());
+        int failed = 0;
+        String error = null;
+        
+        for (int from = 0; from < profiles.size(); from += batchSize) {
+            List<Profile> batch = profiles.subList(from, Math.min(from + batchSize, profiles.size()));
+            try {
+                writeWithRetry(shardId, batch);
+                written.addAll(batch);
+            } catch (Exception e) {
+                failed += batch.size();
+                error = e.getMessage();
+                log.error("Failed to write {} profiles to shard {}: {}", batch.size(), shardId, e.getMessage());
+            }
+        }
+        
+        long elapsedMs = System.currentTimeMillis() - startTime;
+        log.debug("Wrote {} profiles to shard {} in {}ms ({} failed)", written.size(), shardId, elapsedMs, failed);
+        return new ShardWriteResult(shardId, written, failed, elapsedMs, error);
+    }
+    
+    private void writeWithRetry(String shardId, List<Profile> batch) throws InterruptedException {
+        ShardConfig.WriterConfig writer = shardConfig.getWriter();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writeBatch(shardId, batch);
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException | DataAccessResourceFailureException e) {
+                if (attempt >= writer.getMaxRetries()) {
+                    throw e;
+                }
+                long backoffMs = writer.getRetryBackoffMs() << Math.min(attempt, 10);
+                log.warn("Write of {} profiles to shard {} failed (attempt {}), retrying in {}ms: {}",
+                        batch.size(), shardId, attempt + 1, backoffMs, e.getMessage());
+                Thread.sleep(backoffMs);
+            }
+        }
+    }
+    
+    private void writeBatch(String shardId, List<Profile> batch) {
+        TransactionTemplate transaction = shardDataSourceRouter.getTransactionTemplate(shardId);
+        if (transaction == null) {
+            // No shard database configured: keep the shard tag in the primary database
+            profileOrdinalService.registerAll(profileRepository.saveAll(batch));
+            return;
+        }
+        transaction.executeWithoutResult(status -> shardProfileRepository.saveAll(shardId, batch));
+        profileOrdinalService.registerAll(batch);
+    }
+    
+    private int writeBatchSize(String shardId) {
+        ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
+        int batchSize = shard != null && shard.getWriteBatchSize() > 0 ? shard.getWriteBatchSize() : shardConfig.getWriter().getBatchSize();
+        return Math.max(1, batchSize);
+    }
+}
@@ -1,19 +1,32 @@
 package com.semantictalent.finder.service;
 
+import com.pgvector.PGvector;
+import com.semantictalent.finder.config.ShardBucketRouter;
 import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
 import com.semantictalent.finder.dto.SearchRequestDto;
 import com.semantictalent.finder.dto.SearchResultDto;
 import com.semantictalent.finder.dto.ProfileSummaryDto;
 import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.util.SearchAggregates;
+import com.semantictalent.finder.util.TopKCollector;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.util.StopWatch;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,15 +42,72 @@ public class ShardCoordinatorService {
     @Autowired
     private ShardHealthMonitorService shardHealthMonitor;
     
-    // Cache for shard routing decisions
-    private final Map<String, String> locationShardCache = new ConcurrentHashMap<>();
-    private final Map<String, List<String>> queryShardCache = new ConcurrentHashMap<>();
+    @Autowired
+    private ScatterGatherService scatterGatherService;
+    
+    @Autowired
+    private HedgedShardSearchService hedgedShardSearchService;
+    
+    @Autowired
+    private AdaptiveShardSelector adaptiveShardSelector;
+    
+    @Autowired
+    private ShardIsolationService shardIsolationService;
+    
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    @Autowired
+    private SemanticQueryCache semanticQueryCache;
+    
+    @Value("${app.search.aggregations.top-n:20}")
+    private int aggregationTopN;
+    
+    @Value("${app.search.aggregations.high-quality-threshold:0.8}")
+    private double highQualityThreshold;
+    
+    @Autowired
+    private GeographicHintExtractor geographicHintExtractor;
+    
+    @Autowired
+    private ShardBucketRouter shardBucketRouter;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Bounded, TTL-evicting cache of routing decisions (normalized query -> target shards)
+    private Cache<String, List<String>> routingCache;
+    
+    @PostConstruct
+    public void init() {
+        ShardConfig.RoutingCacheConfig cacheConfig = shardConfig.getRoutingCache();
+        routingCache = Caffeine.newBuilder()
+            .maximumSize(cacheConfig.getMaxEntries())
+            .expireAfterWrite(Duration.ofSeconds(cacheConfig.getTtlSeconds()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, routingCache, "shard.routing");
+    }
     
     /**
      * Main entry point for cross-shard search coordination
      */
     public SearchResultDto coordinateSearch(SearchRequestDto request, String userIp) {
         StopWatch stopWatch = new StopWatch("CrossShardSearch");
+        long startTime = System.currentTimeMillis();
+        long budgetMs = resolveLatencyBudget(request);
+        
+        SearchResultDto cached = searchResultCache.get(SearchResultCache.SHARDED, request);
+        if (cached != null) {
+            cached.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+            log.debug("Cross-shard search for '{}' served from the result cache", request.getQuery());
+            return cached;
+        }
+        long cacheGeneration = searchResultCache.generation();
+        long semanticCacheGeneration = semanticQueryCache.generation();
         
         try {
             stopWatch.start("determineTargetShards");
@@ -47,22 +117,91 @@ public class ShardCoordinatorService {
             log.info("Coordinating search across {} shards: {} for query: '{}'", 
                     targetShards.size(), targetShards, request.getQuery());
             
+            stopWatch.start("prepareQueryEmbedding");
+            PGvector queryEmbedding = shardedSearchService.prepareQueryEmbedding(request);
+            stopWatch.stop();
+            
+            // A paraphrase of an earlier query with the same filters reuses its merged top k
+            SearchResultDto paraphrased = semanticQueryCache.find(SearchResultCache.SHARDED, request, queryEmbedding);
+            if (paraphrased != null) {
+                paraphrased.setExecutionTimeMs(System.currentTimeMillis() - startTime);
+                searchResultCache.put(SearchResultCache.SHARDED, request, paraphrased, cacheGeneration);
+                return paraphrased;
+            }
+            
             stopWatch.start("executeParallelSearch");
-            List<CompletableFuture<SearchResultDto>> searchFutures = targetShards.stream()
-                .filter(shardId -> shardHealthMonitor.isShardHealthy(shardId))
-                .map(shardId -> executeShardSearch(shardId, request))
-                .toList();
+            Map<String, String> skippedShards = new LinkedHashMap<>();
+            List<String> healthyShards = new ArrayList<>();
+            for (String shardId : targetShards) {
+                if (!shardHealthMonitor.isShardHealthy(shardId)) {
+                    skippedShards.put(shardId, "UNHEALTHY");
+                } else if (shardIsolationService.isCircuitOpen(shardId)) {
+                    skippedShards.put(shardId, ShardIsolationService.CIRCUIT_OPEN);
+                } else {
+                    healthyShards.add(shardId);
+                }
+            }
+            // Overflow shards that are running far hotter than the rest don't hold up the whole search
+            for (String shardId : adaptiveShardSelector.selectShedShards(healthyShards)) {
+                healthyShards.remove(shardId);
+                skippedShards.put(shardId, "SHED");
+            }
+            
+            // Shards get whatever budget is left after routing and embedding
+            long remainingMs = Math.max(1L, budgetMs - (System.currentTimeMillis() - startTime));
+            
+            // Merge shard rankings as they arrive; the k-th score is pushed down to shards still running
+            TopKCollector topK = new TopKCollector(request.getLimit() != null ? request.getLimit() : 50);
+            ScatterGatherService.Gathered<String, SearchResultDto> gathered = scatterGatherService.scatter(
+                healthyShards,
+                shardId -> executeShardSearch(shardId, request, queryEmbedding, remainingMs, topK::getThreshold),
+                remainingMs,
+                (shardId, result) -> {
+                    if (result.isSuccess()) {
+                        topK.offerAll(result.getProfiles());
+                    }
+                });
             stopWatch.stop();
             
+            for (String shardId : gathered.timedOut()) {
+                skippedShards.put(shardId, "TIMEOUT");
+                shardHealthMonitor.recordShardPerformance(shardId, remainingMs, false);
+            }
+            gathered.failures().forEach((shardId, failure) -> skippedShards.put(shardId, "FAILED: " + failure.getMessage()));
+            
+            List<SearchResultDto> shardResults = new ArrayList<>();
+            for (SearchResultDto result : gathered.results().values()) {
+                if (result.isSuccess()) {
+                    shardResults.add(result);
+                } else if (ShardIsolationService.CIRCUIT_OPEN.equals(result.getErrorMessage())
+                           || ShardIsolationService.BULKHEAD_FULL.equals(result.getErrorMessage())) {
+                    skippedShards.put(result.getShardId(), result.getErrorMessage());
+                } else {
+                    skippedShards.put(result.getShardId(), "FAILED: " + result.getErrorMessage());
+                }
+            }
+            
             stopWatch.start("aggregateResults");
-            SearchResultDto aggregatedResults = aggregateSearchResults(searchFutures, request);
+            SearchResultDto aggregatedResults = aggregateSearchResults(shardResults, topK, request);
+            aggregatedResults.setSkippedShards(skippedShards);
+            aggregatedResults.setPartialResults(!skippedShards.isEmpty());
+            aggregatedResults.setExecutionTimeMs(System.currentTimeMillis() - startTime);
             stopWatch.stop();
             
-            log.info("Cross-shard search completed in {}ms. Found {} results from {} shards",
-                    stopWatch.getTotalTimeMillis(), 
-                    aggregatedResults.getProfiles().size(),
-                    targetShards.size());
+            if (skippedShards.isEmpty()) {
+                log.info("Cross-shard search completed in {}ms. Found {} results from {} shards",
+                        stopWatch.getTotalTimeMillis(), 
+                        aggregatedResults.getProfiles().size(),
+                        targetShards.size());
+            } else {
+                log.warn("Cross-shard search returned partial results in {}ms: {} results from {}/{} shards, skipped {}",
+                        stopWatch.getTotalTimeMillis(),
+                        aggregatedResults.getProfiles().size(),
+                        shardResults.size(), targetShards.size(), skippedShards);
+            }
             
+            searchResultCache.put(SearchResultCache.SHARDED, request, aggregatedResults, cacheGeneration);
+            semanticQueryCache.put(SearchResultCache.SHARDED, request, queryEmbedding, aggregatedResults, semanticCacheGeneration);
             return aggregatedResults;
             
         } catch (Exception e) {
@@ -72,143 +211,89 @@ public class ShardCoordinatorService {
     }
     
     /**
-     * Determine which shards should be queried based on search criteria
+     * Determine which shards should be queried based on search criteria.
+     * Only the query text affects routing, so that is the whole cache key; shard health
+     * is applied by the caller on every request rather than baked into cached routes.
+     * Shards that took over buckets in a migration are added to their source's searches
+     * (the double read; copies present on both sides collapse by id in the top-k merge).
      */
     private List<String> determineTargetShards(SearchRequestDto request) {
-        String cacheKey = buildShardCacheKey(request);
-        
-        // Check cache first
-        if (queryShardCache.containsKey(cacheKey)) {
-            return queryShardCache.get(cacheKey);
-        }
-        
-        List<String> targetShards = new ArrayList<>();
-        
-        // Analyze query for geographic hints
-        Set<String> geographicHints = extractGeographicHints(request.getQuery());
-        
-        if (!geographicHints.isEmpty()) {
-            // Geographic-targeted search
-            targetShards.addAll(resolveGeographicShards(geographicHints));
-            log.debug("Geographic search detected. Targeting shards: {} for locations: {}", 
-                     targetShards, geographicHints);
-        } else {
-            // Global search - query all active shards
-            targetShards.addAll(shardConfig.getAllActiveShardIds());
-            log.debug("Global search detected. Querying all {} shards", targetShards.size());
-        }
-        
-        // Apply shard health filtering
-        targetShards = targetShards.stream()
-            .filter(shardId -> shardHealthMonitor.isShardHealthy(shardId))
-            .collect(Collectors.toList());
-        
-        // Cache the decision
-        queryShardCache.put(cacheKey, targetShards);
-        
-        return targetShards;
+        List<String> routed = routingCache.get(buildRoutingKey(request.getQuery()), key -> resolveTargetShards(request.getQuery()));
+        return shardBucketRouter.withRelocationTargets(routed);
     }
     
-    /**
-     * Extract geographic locations mentioned in search query
-     */
-    private Set<String> extractGeographicHints(String query) {
-        Set<String> hints = new HashSet<>();
-        String queryUpper = query.toUpperCase();
+    private List<String> resolveTargetShards(String query) {
+        // Analyze query for geographic hints (states, metros, countries)
+        Set<String> geographicShards = geographicHintExtractor.extractShardIds(query);
         
-        // Major US regions and states
-        Map<String, String> geoPatterns = Map.of(
-            "NEW YORK", "USA_EAST",
-            "CALIFORNIA", "USA_WEST", 
-            "SAN FRANCISCO", "USA_WEST",
-            "LOS ANGELES", "USA_WEST",
-            "TEXAS", "USA_CENTRAL",
-            "CHICAGO", "USA_CENTRAL",
-            "FLORIDA", "USA_SOUTH",
-            "ATLANTA", "USA_SOUTH",
-            "SEATTLE", "USA_WEST",
-            "BOSTON", "USA_EAST"
-        );
-        
-        geoPatterns.forEach((location, region) -> {
-            if (queryUpper.contains(location)) {
-                hints.add(region);
-            }
-        });
+        if (!geographicShards.isEmpty()) {
+            // Geographic-targeted search
+            log.debug("Geographic search detected. Targeting shards: {}", geographicShards);
+            return List.copyOf(geographicShards);
+        }
         
-        return hints;
+        // Global search - query all active shards
+        List<String> targetShards = shardConfig.getAllActiveShardIds();
+        log.debug("Global search detected. Querying all {} shards", targetShards.size());
+        return List.copyOf(targetShards);
     }
     
     /**
-     * Resolve geographic hints to specific shard IDs
+     * Drop cached routes when a shard changes health, so routing follows the new topology
      */
-    private List<String> resolveGeographicShards(Set<String> geographicHints) {
-        return geographicHints.stream()
-            .map(hint -> mapRegionToShard(hint))
-            .filter(Objects::nonNull)
-            .distinct()
-            .collect(Collectors.toList());
-    }
-    
-    private String mapRegionToShard(String region) {
-        return switch (region) {
-            case "USA_EAST" -> "shard_usa_east";
-            case "USA_WEST" -> "shard_usa_west";
-            case "USA_CENTRAL" -> "shard_usa_central";
-            case "USA_SOUTH" -> "shard_usa_south";
-            default -> null;
-        };
+    @EventListener
+    public void onShardHealthChanged(ShardHealthMonitorService.ShardHealthChangedEvent event) {
+        log.info("Shard {} is now {}; invalidating {} cached routes", 
+                event.shardId(), event.healthy() ? "healthy" : "unhealthy", routingCache.estimatedSize());
+        routingCache.invalidateAll();
     }
     
     /**
-     * Execute search on a specific shard asynchronously
+     * Execute search on a specific shard (runs on a scatter-gather virtual thread), inside
+     * the shard's bulkhead and circuit breaker
      */
-    @Async("shardSearchTaskExecutor")
-    public CompletableFuture<SearchResultDto> executeShardSearch(String shardId, SearchRequestDto request) {
+    private SearchResultDto executeShardSearch(String shardId, SearchRequestDto request, PGvector queryEmbedding,
+                                               long timeoutMs, DoubleSupplier scoreFloor) {
+        ShardIsolationService.Permit permit = shardIsolationService.tryAcquire(shardId);
+        if (!permit.isAdmitted()) {
+            log.debug("Shard {} rejected the search: {}", shardId, permit.getRejection());
+            SearchResultDto rejected = createEmptyResult(request, permit.getRejection());
+            rejected.setShardId(shardId);
+            return rejected;
+        }
+        
+        long startTime = System.currentTimeMillis();
+        boolean succeeded = false;
         try {
-            long startTime = System.currentTimeMillis();
-            
-            SearchResultDto result = shardedSearchService.searchInShard(shardId, request);
+            SearchResultDto result = hedgedShardSearchService.search(shardId, request, queryEmbedding, timeoutMs, scoreFloor);
             result.setShardId(shardId);  // Tag result with shard origin
+            succeeded = result.isSuccess();
             
             long executionTime = System.currentTimeMillis() - startTime;
+            shardHealthMonitor.recordShardPerformance(shardId, executionTime, result.isSuccess());
             log.debug("Shard {} search completed in {}ms with {} results", 
                      shardId, executionTime, result.getProfiles().size());
             
-            return CompletableFuture.completedFuture(result);
+            return result;
             
         } catch (Exception e) {
+            shardHealthMonitor.recordShardPerformance(shardId, System.currentTimeMillis() - startTime, false);
             log.warn("Search failed on shard {}: {}", shardId, e.getMessage());
             SearchResultDto emptyResult = createEmptyResult(request, "Shard " + shardId + " unavailable");
             emptyResult.setShardId(shardId);
-            return CompletableFuture.completedFuture(emptyResult);
+            return emptyResult;
+        } finally {
+            permit.release(succeeded);
         }
     }
     
     /**
-     * Aggregate results from multiple shards and apply global ranking
+     * Build the aggregated response from the shard results and the merged global top k
      */
-    private SearchResultDto aggregateSearchResults(List<CompletableFuture<SearchResultDto>> searchFutures, 
+    private SearchResultDto aggregateSearchResults(List<SearchResultDto> shardResults, TopKCollector topK,
                                                   SearchRequestDto request) {
         try {
-            // Wait for all shard searches to complete
-            List<SearchResultDto> shardResults = searchFutures.stream()
-                .map(CompletableFuture::join)
-                .collect(Collectors.toList());
-            
-            // Combine all profiles
-            List<ProfileSummaryDto> allProfiles = shardResults.stream()
-                .flatMap(result -> result.getProfiles().stream())
-                .collect(Collectors.toList());
-            
-            // Global re-ranking by similarity score
-            allProfiles.sort((a, b) -> Double.compare(b.getSimilarityScore(), a.getSimilarityScore()));
-            
-            // Apply global limit
-            int limit = request.getLimit() != null ? request.getLimit() : 50;
-            List<ProfileSummaryDto> topResults = allProfiles.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+            List<ProfileSummaryDto> topResults = topK.toSortedList();
             
             // Build aggregated metadata
             long totalExecutionTime = shardResults.stream()
@@ -220,6 +305,24 @@ public class ShardCoordinatorService {
                 .mapToInt(result -> result.getProfiles().size())
                 .sum();
             
+            // Facets over every shard's candidates, not just the global top k. Shards are
+            // disjoint, except for profiles mid-migration, which may be counted twice. Shards
+            // without a database of their own all answer from the primary; count it once.
+            SearchAggregates aggregates = new SearchAggregates(highQualityThreshold);
+            boolean primaryCounted = false;
+            for (SearchResultDto shardResult : shardResults) {
+                if (shardResult.getPartialAggregates() == null) {
+                    continue;
+                }
+                if (shardResult.getShardId() == null || !shardDataSourceRouter.hasDataSource(shardResult.getShardId())) {
+                    if (primaryCounted) {
+                        continue;
+                    }
+                    primaryCounted = true;
+                }
+                aggregates.merge(shardResult.getPartialAggregates());
+            }
+            
             // Create final result
             SearchResultDto aggregatedResult = SearchResultDto.builder()
                 .profiles(topResults)
@@ -230,6 +333,8 @@ public class ShardCoordinatorService {
                 .shardsQueried(shardResults.size())
                 .success(true)
                 .build();
+            aggregates.applyTo(aggregatedResult, request.getMode() != null ? request.getMode() : SearchRequestDto.SearchMode.SEMANTIC,
+                aggregationTopN);
             
             log.info("Aggregated {} profiles from {} shards (total found: {})", 
                     topResults.size(), shardResults.size(), totalResultsFound);
@@ -250,6 +355,11 @@ public class ShardCoordinatorService {
             return "default";
         }
         
+        String hashKey = shardBucketRouter.hashKey(profile);
+        if ("hash_only".equals(shardConfig.getStrategy())) {
+            return shardBucketRouter.resolveShard(hashKey);
+        }
+        
         // Primary: Geographic placement
         String geographicShard = shardConfig.resolveShardByLocation(
             profile.getLocationCountry(),
@@ -259,12 +369,17 @@ public class ShardCoordinatorService {
         
         // Secondary: Hash-based load balancing for hot regions
         ShardConfig.ShardDefinition shardDef = shardConfig.getShardDefinition(geographicShard);
-        if (shardDef != null && isShardOverloaded(geographicShard)) {
-            // Use hash distribution to spread load across multiple shards in the region
-            return shardConfig.resolveShardByHash(profile.getId().toString());
+        if (shardDef != null && !"geographic_only".equals(shardConfig.getStrategy()) && isShardOverloaded(geographicShard)) {
+            // Spill by hash bucket onto shards that still have headroom
+            String spillShard = shardBucketRouter.resolveShard(hashKey,
+                shardId -> !shardId.equals(geographicShard) && !isShardOverloaded(shardId));
+            if (spillShard != null) {
+                return spillShard;
+            }
         }
         
-        return geographicShard;
+        // Buckets moved off the shard by a bucket migration are written to their new shard
+        return shardBucketRouter.applyRelocations(geographicShard, hashKey);
     }
     
     private boolean isShardOverloaded(String shardId) {
@@ -275,11 +390,20 @@ public class ShardCoordinatorService {
         return shardHealthMonitor.getShardRecordCount(shardId) > shard.getMaxRecords() * 0.85;
     }
     
-    private String buildShardCacheKey(SearchRequestDto request) {
-        return String.format("%s_%s_%s", 
-                request.getQuery().hashCode(),
-                request.getLimit(),
-                request.getThreshold());
+    /**
+     * Request latency budget: the configured deadline, tightened by the request's timeoutMs if given
+     */
+    private long resolveLatencyBudget(SearchRequestDto request) {
+        long configured = shardConfig.getSearchDeadlineMs();
+        if (request.getTimeoutMs() == null || request.getTimeoutMs() <= 0) {
+            return configured;
+        }
+        return Math.min(configured, request.getTimeoutMs());
+    }
+    
+    // Case and whitespace don't change geographic routing; the full text avoids hash collisions
+    private String buildRoutingKey(String query) {
+        return query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
     
     private SearchResultDto createEmptyResult(SearchRequestDto request, String message) {
@@ -307,9 +431,19 @@ public class ShardCoordinatorService {
         
         health.put("shardsConfigured", activeShards.size());
         health.put("shardsHealthy", healthyShards.size());
-        health.put("cacheSize", queryShardCache.size());
+        CacheStats routingStats = routingCache.stats();
+        Map<String, Object> cacheHealth = new HashMap<>();
+        cacheHealth.put("size", routingCache.estimatedSize());
+        cacheHealth.put("hitRate", routingStats.hitRate());
+        cacheHealth.put("evictions", routingStats.evictionCount());
+        health.put("routingCache", cacheHealth);
         health.put("shardingEnabled", shardConfig.isEnabled());
         health.put("strategy", shardConfig.getStrategy());
+        health.put("hedging", hedgedShardSearchService.getHedgingStats());
+        health.put("isolation", shardIsolationService.getIsolationStats());
+        health.put("hashBuckets", shardBucketRouter.getBucketDistribution());
+        health.put("resultCache", searchResultCache.getStats());
+        health.put("semanticCache", semanticQueryCache.getStats());
         
         return health;
     }
@@ -1,13 +1,19 @@
 package com.semantictalent.finder.service;
 
 import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.repository.ShardProbeRepository;
+import com.semantictalent.finder.util.LatencyHistogram;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,11 +26,46 @@ public class ShardHealthMonitorService {
     @Autowired
     private ShardConfig shardConfig;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private ShardProbeRepository shardProbeRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Primary database: holds the profiles of shards without their own database
+    @Autowired
+    private DataSource dataSource;
+    
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    
+    // Replica key -> replay lag in ms (-1 = unreachable), refreshed with the shard health
+    private final Map<String, Long> replicaLagCache = new ConcurrentHashMap<>();
+    
+    /**
+     * Published when a shard flips between healthy and unhealthy
+     */
+    public record ShardHealthChangedEvent(String shardId, boolean healthy) {}
+    
     // Shard health status cache
     private final Map<String, ShardHealth> shardHealthCache = new ConcurrentHashMap<>();
     
-    // Shard performance metrics
-    private final Map<String, ShardMetrics> shardMetricsCache = new ConcurrentHashMap<>();
+    // Shard latency per stage (shardId -> stage -> histogram); recording is wait-free
+    private final Map<String, Map<String, LatencyHistogram>> shardLatencies = new ConcurrentHashMap<>();
+    
+    private static final double[] EXPORTED_PERCENTILES = {0.5, 0.95, 0.99};
+    
+    /**
+     * End-to-end shard search as seen by the coordinator, and the individual primary/replica attempts
+     */
+    public static final String STAGE_SEARCH = "search";
+    public static final String STAGE_PRIMARY = "primary";
+    public static final String STAGE_REPLICA = "replica";
     
     public static class ShardHealth {
         private boolean healthy;
@@ -32,14 +73,26 @@ public class ShardHealthMonitorService {
         private String errorMessage;
         private long responseTimeMs;
         private long recordCount;
+        private long tableSizeBytes;
+        private long totalSizeBytes;
+        private long industryCount;
         
         public ShardHealth(boolean healthy, LocalDateTime lastChecked, String errorMessage, 
                           long responseTimeMs, long recordCount) {
+            this(healthy, lastChecked, errorMessage, responseTimeMs, recordCount, 0L, 0L, 0L);
+        }
+        
+        public ShardHealth(boolean healthy, LocalDateTime lastChecked, String errorMessage,
+                          long responseTimeMs, long recordCount, long tableSizeBytes, long totalSizeBytes,
+                          long industryCount) {
             this.healthy = healthy;
             this.lastChecked = lastChecked;
             this.errorMessage = errorMessage;
             this.responseTimeMs = responseTimeMs;
             this.recordCount = recordCount;
+            this.tableSizeBytes = tableSizeBytes;
+            this.totalSizeBytes = totalSizeBytes;
+            this.industryCount = industryCount;
         }
         
         // Getters
@@ -48,36 +101,9 @@ public class ShardHealthMonitorService {
         public String getErrorMessage() { return errorMessage; }
         public long getResponseTimeMs() { return responseTimeMs; }
         public long getRecordCount() { return recordCount; }
-    }
-    
-    public static class ShardMetrics {
-        private long totalQueries;
-        private long avgResponseTimeMs;
-        private long totalRecords;
-        private double storageSizeGb;
-        private LocalDateTime lastUpdated;
-        private int errorCount;
-        private double successRate;
-        
-        public ShardMetrics(long totalQueries, long avgResponseTimeMs, long totalRecords,
-                           double storageSizeGb, LocalDateTime lastUpdated, int errorCount) {
-            this.totalQueries = totalQueries;
-            this.avgResponseTimeMs = avgResponseTimeMs;
-            this.totalRecords = totalRecords;
-            this.storageSizeGb = storageSizeGb;
-            this.lastUpdated = lastUpdated;
-            this.errorCount = errorCount;
-            this.successRate = totalQueries > 0 ? (double)(totalQueries - errorCount) / totalQueries * 100 : 100.0;
-        }
-        
-        // Getters
-        public long getTotalQueries() { return totalQueries; }
-        public long getAvgResponseTimeMs() { return avgResponseTimeMs; }
-        public long getTotalRecords() { return totalRecords; }
-        public double getStorageSizeGb() { return storageSizeGb; }
-        public LocalDateTime getLastUpdated() { return lastUpdated; }
-        public int getErrorCount() { return errorCount; }
-        public double getSuccessRate() { return successRate; }
+        public long getTableSizeBytes() { return tableSizeBytes; }
+        public long getTotalSizeBytes() { return totalSizeBytes; }
+        public long getIndustryCount() { return industryCount; }
     }
     
     /**
@@ -100,13 +126,27 @@ public class ShardHealthMonitorService {
     }
     
     /**
-     * Get current record count for a shard
+     * Estimated record count for a shard (pg_class.reltuples as of the last health check)
      */
     public long getShardRecordCount(String shardId) {
         ShardHealth health = shardHealthCache.get(shardId);
         return health != null ? health.recordCount : 0L;
     }
     
+    /**
+     * Last health check result for a shard, or null if it hasn't been checked yet
+     */
+    public ShardHealth getShardHealth(String shardId) {
+        return shardHealthCache.get(shardId);
+    }
+    
+    /**
+     * Replay lag of a replica as of the last health check: null if unknown, -1 if unreachable
+     */
+    public Long getReplicaLagMs(String replicaKey) {
+        return replicaLagCache.get(replicaKey);
+    }
+    
     /**
      * Perform immediate health check on a specific shard
      */
@@ -120,22 +160,33 @@ public class ShardHealthMonitorService {
                 return false;
             }
             
-            // Simulate database connectivity check
-            // In real implementation, this would create a connection to the shard database
-            long recordCount = checkShardDatabase(shard);
+            if (!shardDataSourceRouter.hasDataSource(shardId)) {
+                // No database of its own: the shard's profiles are served from the primary database
+                boolean reachable;
+                try (Connection connection = dataSource.getConnection()) {
+                    reachable = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+                }
+                long responseTime = System.currentTimeMillis() - startTime;
+                updateShardHealth(shardId, reachable, reachable ? null : "Primary database connection invalid", responseTime, 0);
+                return reachable;
+            }
+            
+            ShardProbeRepository.TableStats stats = checkShardDatabase(shard);
             long responseTime = System.currentTimeMillis() - startTime;
             
-            if (recordCount >= 0) {
-                updateShardHealth(shardId, true, null, responseTime, recordCount);
-                log.debug("Health check passed for shard {}: {} records, {}ms response", 
-                         shardId, recordCount, responseTime);
+            if (stats != null) {
+                updateShardHealth(shardId, new ShardHealth(true, LocalDateTime.now(), null, responseTime,
+                    stats.estimatedRows(), stats.tableBytes(), stats.totalBytes(), stats.industryCount()));
+                log.debug("Health check passed for shard {}: ~{} records, {} bytes, {}ms response", 
+                         shardId, stats.estimatedRows(), stats.totalBytes(), responseTime);
+                checkReplicas(shardId);
                 return true;
             } else {
-                updateShardHealth(shardId, false, "Database query failed", responseTime, 0);
-                log.warn("Health check failed for shard {}: database query failed", shardId);
+                updateShardHealth(shardId, false, "Connection validation failed or profiles table missing", responseTime, 0);
+                log.warn("Health check failed for shard {}: database probe failed", shardId);
                 return false;
             }
-            
+        
         } catch (Exception e) {
             long responseTime = System.currentTimeMillis() - startTime;
             updateShardHealth(shardId, false, e.getMessage(), responseTime, 0);
@@ -145,39 +196,45 @@ public class ShardHealthMonitorService {
     }
     
     /**
-     * Simulate shard database connectivity check
-     * In production, this would use actual DataSource connections
+     * Validate a pooled connection and read the profiles table statistics from the catalog
+     * @return Table statistics, or null if the connection is invalid or the table is missing
      */
-    private long checkShardDatabase(ShardConfig.ShardDefinition shard) {
-        try {
-            // For now, simulate different record counts per shard based on our architecture
-            return switch (shard.getShardId()) {
-                case "shard_usa_east" -> 15_234_567L;
-                case "shard_usa_west" -> 15_112_890L;
-                case "shard_usa_central" -> 12_890_123L;
-                case "shard_usa_south" -> 6_234_567L;
-                case "shard_international" -> 1_880_472L;
-                default -> 0L;
-            };
-            
-            // In production, this would be:
-            // JdbcTemplate jdbcTemplate = new JdbcTemplate(getShardDataSource(shard));
-            // return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM profiles", Long.class);
-            
-        } catch (Exception e) {
-            log.error("Database connectivity check failed for shard {}: {}", shard.getShardId(), e.getMessage());
-            return -1L;
+    private ShardProbeRepository.TableStats checkShardDatabase(ShardConfig.ShardDefinition shard) throws Exception {
+        if (!shardProbeRepository.validateConnection(shard.getShardId(), VALIDATION_TIMEOUT_SECONDS)) {
+            return null;
+        }
+        String schema = shard.getDatabase() != null ? shard.getDatabase().getSchema() : null;
+        return shardProbeRepository.getTableStats(shard.getShardId(), schema);
+    }
+    
+    private void checkReplicas(String shardId) {
+        for (String replicaKey : shardDataSourceRouter.getReplicaKeys(shardId)) {
+            try {
+                Long lagMs = shardProbeRepository.getReplicationLagMs(replicaKey);
+                replicaLagCache.put(replicaKey, lagMs != null ? lagMs : 0L);
+            } catch (Exception e) {
+                replicaLagCache.put(replicaKey, -1L);
+                log.warn("Replica {} unreachable: {}", replicaKey, e.getMessage());
+            }
         }
     }
     
     private void updateShardHealth(String shardId, boolean healthy, String errorMessage, 
                                   long responseTime, long recordCount) {
-        ShardHealth health = new ShardHealth(healthy, LocalDateTime.now(), errorMessage, responseTime, recordCount);
-        shardHealthCache.put(shardId, health);
+        updateShardHealth(shardId, new ShardHealth(healthy, LocalDateTime.now(), errorMessage, responseTime, recordCount));
+    }
+    
+    private void updateShardHealth(String shardId, ShardHealth health) {
+        ShardHealth previous = shardHealthCache.put(shardId, health);
+        
+        if (previous != null && previous.healthy != health.healthy) {
+            eventPublisher.publishEvent(new ShardHealthChangedEvent(shardId, health.healthy));
+        }
     }
     
     /**
-     * Scheduled health check for all active shards (every 2 minutes)
+     * Scheduled health check for all active shards (every 2 minutes); routing, spill
+     * placement and capacity checks read the cached results
      */
     @Scheduled(fixedRate = 120000) // 2 minutes
     public void scheduledHealthCheck() {
@@ -199,27 +256,54 @@ public class ShardHealthMonitorService {
     }
     
     /**
-     * Update performance metrics for a shard after query execution
+     * Record the end-to-end latency of a shard search
      */
     public void recordShardPerformance(String shardId, long responseTimeMs, boolean success) {
-        ShardMetrics current = shardMetricsCache.get(shardId);
-        
-        if (current == null) {
-            // Initialize metrics
-            shardMetricsCache.put(shardId, new ShardMetrics(
-                1L, responseTimeMs, 0L, 0.0, LocalDateTime.now(), success ? 0 : 1
-            ));
-        } else {
-            // Update existing metrics
-            long totalQueries = current.totalQueries + 1;
-            long avgResponseTime = (current.avgResponseTimeMs * current.totalQueries + responseTimeMs) / totalQueries;
-            int errorCount = current.errorCount + (success ? 0 : 1);
-            
-            shardMetricsCache.put(shardId, new ShardMetrics(
-                totalQueries, avgResponseTime, current.totalRecords, 
-                current.storageSizeGb, LocalDateTime.now(), errorCount
-            ));
+        recordStageLatency(shardId, STAGE_SEARCH, responseTimeMs, success);
+    }
+    
+    /**
+     * Record one latency sample for a shard and stage; safe to call from any number of threads
+     */
+    public void recordStageLatency(String shardId, String stage, long latencyMs, boolean success) {
+        latencyHistogram(shardId, stage).record(latencyMs, success);
+    }
+    
+    /**
+     * Latency percentiles and error rate of a shard stage over the recent window
+     */
+    public LatencyHistogram.Snapshot getLatencySnapshot(String shardId, String stage) {
+        return latencyHistogram(shardId, stage).snapshot();
+    }
+    
+    private LatencyHistogram latencyHistogram(String shardId, String stage) {
+        return shardLatencies.computeIfAbsent(shardId, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(stage, k -> registerLatencyGauges(shardId, stage, new LatencyHistogram(shardConfig.getLatencyWindowMs())));
+    }
+    
+    /**
+     * Export the histogram's windowed percentiles and error rate as gauges, so actuator shows
+     * the same numbers as the health report and hedging use
+     */
+    private LatencyHistogram registerLatencyGauges(String shardId, String stage, LatencyHistogram histogram) {
+        for (double percentile : EXPORTED_PERCENTILES) {
+            Gauge.builder("shard.search.latency", histogram, h -> h.snapshot().percentile(percentile))
+                .tag("shard", shardId)
+                .tag("stage", stage)
+                .tag("quantile", String.valueOf(percentile))
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
         }
+        Gauge.builder("shard.search.latency.max", histogram, h -> h.snapshot().max())
+            .tag("shard", shardId)
+            .tag("stage", stage)
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        Gauge.builder("shard.search.error.rate", histogram, h -> h.snapshot().errorRate())
+            .tag("shard", shardId)
+            .tag("stage", stage)
+            .register(meterRegistry);
+        return histogram;
     }
     
     /**
@@ -249,14 +333,32 @@ public class ShardHealthMonitorService {
                 shardInfo.put("lastChecked", health.lastChecked);
                 shardInfo.put("responseTime", health.responseTimeMs);
                 shardInfo.put("recordCount", health.recordCount);
+                shardInfo.put("tableSizeBytes", health.tableSizeBytes);
+                shardInfo.put("totalSizeBytes", health.totalSizeBytes);
                 shardInfo.put("errorMessage", health.errorMessage);
             }
             
-            ShardMetrics metrics = shardMetricsCache.get(shardId);
-            if (metrics != null) {
-                shardInfo.put("totalQueries", metrics.totalQueries);
-                shardInfo.put("avgResponseTime", metrics.avgResponseTimeMs);
-                shardInfo.put("successRate", metrics.successRate);
+            Map<String, Long> replicaLag = new HashMap<>();
+            shardDataSourceRouter.getReplicaKeys(shardId).forEach(key -> {
+                Long lag = replicaLagCache.get(key);
+                if (lag != null) {
+                    replicaLag.put(key, lag);
+                }
+            });
+            if (!replicaLag.isEmpty()) {
+                shardInfo.put("replicaLagMs", replicaLag);
+            }
+            
+            Map<String, LatencyHistogram> stages = shardLatencies.getOrDefault(shardId, Map.of());
+            if (!stages.isEmpty()) {
+                Map<String, Map<String, Object>> latency = new HashMap<>();
+                stages.forEach((stage, histogram) -> latency.put(stage, toLatencyReport(histogram.snapshot())));
+                shardInfo.put("latency", latency);
+                
+                LatencyHistogram.Snapshot search = getLatencySnapshot(shardId, STAGE_SEARCH);
+                shardInfo.put("totalQueries", search.count() + search.errors());
+                shardInfo.put("avgResponseTime", Math.round(search.mean()));
+                shardInfo.put("successRate", (1.0 - search.errorRate()) * 100);
             }
             
             shardDetails.put(shardId, shardInfo);
@@ -274,20 +376,20 @@ public class ShardHealthMonitorService {
         
         for (String shardId : shardConfig.getAllActiveShardIds()) {
             ShardHealth health = shardHealthCache.get(shardId);
-            ShardMetrics metrics = shardMetricsCache.get(shardId);
+            LatencyHistogram.Snapshot search = getLatencySnapshot(shardId, STAGE_SEARCH);
             
             if (health == null || !health.healthy) {
                 recommendations.put(shardId, "UNAVAILABLE - Redirect traffic to healthy shards");
                 continue;
             }
             
-            if (metrics != null) {
-                if (metrics.avgResponseTimeMs > 1000) {
+            if (search.count() + search.errors() > 0) {
+                if (search.p95() > 1000) {
                     recommendations.put(shardId, "HIGH_LATENCY - Consider adding read replicas or optimizing queries");
-                } else if (metrics.successRate < 95.0) {
+                } else if (search.errorRate() > 0.05) {
                     recommendations.put(shardId, "HIGH_ERROR_RATE - Investigate recent errors and consider failover");
-                } else if (health.recordCount > 15_000_000) {
-                    recommendations.put(shardId, "APPROACHING_CAPACITY - Plan for horizontal scaling");
+                } else if (isApproachingCapacity(shardId, health.recordCount)) {
+                    recommendations.put(shardId, "APPROACHING_CAPACITY - Move hash buckets off this shard (see /api/shards/migrations/proposals)");
                 } else {
                     recommendations.put(shardId, "HEALTHY - Operating normally");
                 }
@@ -297,6 +399,24 @@ public class ShardHealthMonitorService {
         return recommendations;
     }
     
+    private static Map<String, Object> toLatencyReport(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> report = new HashMap<>();
+        report.put("count", snapshot.count());
+        report.put("errors", snapshot.errors());
+        report.put("errorRate", snapshot.errorRate());
+        report.put("p50Ms", snapshot.p50());
+        report.put("p95Ms", snapshot.p95());
+        report.put("p99Ms", snapshot.p99());
+        report.put("maxMs", snapshot.max());
+        return report;
+    }
+    
+    private boolean isApproachingCapacity(String shardId, long recordCount) {
+        ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
+        long maxRecords = shard != null && shard.getMaxRecords() > 0 ? shard.getMaxRecords() : shardConfig.getMaxRecordsPerShard();
+        return recordCount > maxRecords * 0.85;
+    }
+    
     private void logHealthSummary() {
         long healthy = shardHealthCache.values().stream().mapToLong(h -> h.healthy ? 1 : 0).sum();
         long total = shardHealthCache.size();
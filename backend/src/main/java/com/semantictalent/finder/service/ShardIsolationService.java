@@ -0,0 +1,177 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-shard circuit breakers and bulkheads for shard searches. The breaker makes a shard
+ * that keeps failing fail fast (and probes it half-open after a cool-down) long before the
+ * periodic health check notices; the bulkhead caps concurrent calls into one shard, so a
+ * slow region can't tie up the connections and threads every other search needs.
+ */
+@Service
+@Slf4j
+public class ShardIsolationService {
+    
+    public static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+    public static final String BULKHEAD_FULL = "BULKHEAD_FULL";
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    
+    /**
+     * Admission to call a shard; release() must be called exactly once for an admitted permit
+     */
+    public final class Permit {
+        private final String shardId;
+        private final CircuitBreaker.State admittedAs;
+        private final boolean holdsBulkhead;
+        private final String rejection;
+        
+        private Permit(String shardId, CircuitBreaker.State admittedAs, boolean holdsBulkhead, String rejection) {
+            this.shardId = shardId;
+            this.admittedAs = admittedAs;
+            this.holdsBulkhead = holdsBulkhead;
+            this.rejection = rejection;
+        }
+        
+        public boolean isAdmitted() {
+            return rejection == null;
+        }
+        
+        /**
+         * CIRCUIT_OPEN or BULKHEAD_FULL for a rejected permit
+         */
+        public String getRejection() {
+            return rejection;
+        }
+        
+        public void release(boolean success) {
+            if (holdsBulkhead) {
+                bulkheads.get(shardId).release();
+            }
+            if (admittedAs != null) {
+                CircuitBreaker breaker = breakers.get(shardId);
+                CircuitBreaker.State before = breaker.getState();
+                CircuitBreaker.State after = breaker.record(admittedAs, success);
+                if (before != after) {
+                    if (after == CircuitBreaker.State.OPEN) {
+                        log.warn("Circuit for shard {} opened; failing fast for {}ms", shardId,
+                                shardConfig.getCircuitBreaker().getOpenDurationMs());
+                    } else {
+                        log.info("Circuit for shard {} is now {}", shardId, after);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether the shard's circuit is open and not yet due for a probe. Cheap enough to
+     * filter a fan-out with; a shard that passes still has to get a permit.
+     */
+    public boolean isCircuitOpen(String shardId) {
+        CircuitBreaker breaker = breakers.get(shardId);
+        return breaker != null && breaker.isRejecting();
+    }
+    
+    /**
+     * Enter the shard's bulkhead (waiting up to bulkhead.maxWaitMs) and circuit breaker
+     */
+    public Permit tryAcquire(String shardId) {
+        ShardConfig.BulkheadConfig bulkheadConfig = shardConfig.getBulkhead();
+        boolean holdsBulkhead = false;
+        if (bulkheadConfig.isEnabled()) {
+            try {
+                holdsBulkhead = bulkhead(shardId).tryAcquire(bulkheadConfig.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!holdsBulkhead) {
+                return reject(shardId, BULKHEAD_FULL);
+            }
+        }
+        
+        if (!shardConfig.getCircuitBreaker().isEnabled()) {
+            return new Permit(shardId, null, holdsBulkhead, null);
+        }
+        CircuitBreaker.State admittedAs = breaker(shardId).tryAcquire();
+        if (admittedAs == CircuitBreaker.State.OPEN) {
+            if (holdsBulkhead) {
+                bulkheads.get(shardId).release();
+            }
+            return reject(shardId, CIRCUIT_OPEN);
+        }
+        if (admittedAs == CircuitBreaker.State.HALF_OPEN) {
+            log.debug("Probing shard {} with a half-open call", shardId);
+        }
+        return new Permit(shardId, admittedAs, holdsBulkhead, null);
+    }
+    
+    public Map<String, Object> getIsolationStats() {
+        Map<String, Object> stats = new HashMap<>();
+        for (String shardId : shardConfig.getAllActiveShardIds()) {
+            Map<String, Object> shardStats = new HashMap<>();
+            CircuitBreaker breaker = breakers.get(shardId);
+            shardStats.put("circuit", breaker != null ? breaker.getState().name() : CircuitBreaker.State.CLOSED.name());
+            shardStats.put("failureRate", breaker != null ? breaker.getFailureRate() : 0.0);
+            Semaphore bulkhead = bulkheads.get(shardId);
+            int limit = bulkheadLimit(shardId);
+            shardStats.put("concurrentCalls", bulkhead != null ? limit - bulkhead.availablePermits() : 0);
+            shardStats.put("maxConcurrentCalls", limit);
+            stats.put(shardId, shardStats);
+        }
+        return stats;
+    }
+    
+    private Permit reject(String shardId, String reason) {
+        rejections.computeIfAbsent(shardId + ":" + reason, key -> Counter.builder("shard.calls.rejected")
+                .tag("shard", shardId)
+                .tag("reason", reason)
+                .register(meterRegistry))
+            .increment();
+        return new Permit(shardId, null, false, reason);
+    }
+    
+    private CircuitBreaker breaker(String shardId) {
+        return breakers.computeIfAbsent(shardId, id -> {
+            ShardConfig.CircuitBreakerConfig config = shardConfig.getCircuitBreaker();
+            return new CircuitBreaker(config.getFailureRateThreshold(), config.getSlidingWindowSize(),
+                config.getMinimumCalls(), config.getOpenDurationMs(), config.getHalfOpenProbes());
+        });
+    }
+    
+    private Semaphore bulkhead(String shardId) {
+        return bulkheads.computeIfAbsent(shardId, id -> new Semaphore(bulkheadLimit(id)));
+    }
+    
+    /**
+     * bulkhead.maxConcurrentCalls, or the size of the shard's connection pool when that is 0
+     */
+    private int bulkheadLimit(String shardId) {
+        int configured = shardConfig.getBulkhead().getMaxConcurrentCalls();
+        if (configured > 0) {
+            return configured;
+        }
+        ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
+        return shard != null && shard.getDatabase() != null ? Math.max(1, shard.getDatabase().getMaxConnections()) : 50;
+    }
+}
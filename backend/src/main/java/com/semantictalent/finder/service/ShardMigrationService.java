@@ -0,0 +1,435 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardBucketRouter;
+import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
+import com.semantictalent.finder.entity.Profile;
+import com.semantictalent.finder.entity.ShardMigration;
+import com.semantictalent.finder.repository.ShardMigrationRepository;
+import com.semantictalent.finder.repository.ShardProfileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Moves hash buckets of one shard database to another while both stay online.
+ * COPYING: scan the source in keyset batches and copy rows of the moving buckets to the
+ * target (idempotent, checkpointed, throttled). Cutover: persist, then switch the routing
+ * table atomically; from then on writes for those buckets go to the target and searches
+ * read both shards (duplicates collapse by id). CATCHING_UP: after a settle delay, copy
+ * anything the source received before the switch. CLEANING_UP: delete the moved rows
+ * from the source, first re-copying any the target is missing or holds an older version of.
+ * Copies never overwrite a newer target row, so writes made there after cutover survive.
+ * The routing switch is held in memory; every instance polls shard_migrations and applies
+ * cutovers made by other instances within app.sharding.migration.routing-poll-ms.
+ */
+@Service
+@Slf4j
+public class ShardMigrationService {
+    
+    private static final long UNHEALTHY_BACKOFF_MS = 1000;
+    
+    @Autowired
+    private ShardConfig shardConfig;
+    
+    @Autowired
+    private ShardBucketRouter shardBucketRouter;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private ShardProfileRepository shardProfileRepository;
+    
+    @Autowired
+    private ShardMigrationRepository shardMigrationRepository;
+    
+    @Autowired
+    private ProfileOrdinalService profileOrdinalService;
+    
+    @Autowired
+    private ShardHealthMonitorService shardHealthMonitor;
+    
+    @Autowired
+    @Qualifier("dataImportTaskExecutor")
+    private Executor migrationExecutor;
+    
+    // Running migrations -> stop flag
+    private final Map<String, AtomicBoolean> running = new ConcurrentHashMap<>();
+    
+    // Migrations whose routing this instance has applied
+    private final Set<String> routed = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Re-apply the routing of every migration that already cut over, so a restart keeps
+     * sending moved buckets to their new shard
+     */
+    @PostConstruct
+    public void init() {
+        int applied = refreshRouting();
+        if (applied > 0) {
+            log.info("Restored routing for {} bucket migrations", applied);
+        }
+    }
+    
+    /**
+     * Apply migrations cut over by other instances since the last poll
+     * @return Number of migrations newly applied
+     */
+    @Scheduled(fixedDelayString = "${app.sharding.migration.routing-poll-ms:10000}",
+               initialDelayString = "${app.sharding.migration.routing-poll-ms:10000}")
+    public int refreshRouting() {
+        if (!shardConfig.isEnabled()) {
+            return 0;
+        }
+        
+        try {
+            int applied = 0;
+            for (ShardMigration migration : shardMigrationRepository.findByCutOverTrueOrderByCreatedAtAsc()) {
+                if (!routed.contains(migration.getId())) {
+                    applyRouting(migration);
+                    applied++;
+                }
+            }
+            return applied;
+        } catch (Exception e) {
+            log.error("Failed to refresh bucket migration routing", e);
+            return 0;
+        }
+    }
+    
+    /**
+     * Start moving buckets [bucketFrom, bucketTo] of sourceShard to targetShard
+     */
+    public ShardMigration startMigration(String sourceShard, String targetShard, int bucketFrom, int bucketTo) {
+        validate(sourceShard, targetShard, bucketFrom, bucketTo);
+        
+        ShardMigration migration = new ShardMigration();
+        migration.setId(UUID.randomUUID().toString());
+        migration.setSourceShard(sourceShard);
+        migration.setTargetShard(targetShard);
+        migration.setBucketFrom(bucketFrom);
+        migration.setBucketTo(bucketTo);
+        migration.setStatus(ShardMigration.Status.PENDING);
+        migration = shardMigrationRepository.save(migration);
+        
+        log.info("Starting migration {}: buckets {}-{} from {} to {}", migration.getId(), bucketFrom, bucketTo,
+                sourceShard, targetShard);
+        launch(migration.getId());
+        return migration;
+    }
+    
+    /**
+     * Ask a running migration to stop after its current batch; it can be resumed later
+     */
+    public boolean pauseMigration(String migrationId) {
+        AtomicBoolean stop = running.get(migrationId);
+        if (stop == null) {
+            return false;
+        }
+        stop.set(true);
+        return true;
+    }
+    
+    /**
+     * Resume a paused or failed migration from its checkpoint
+     */
+    public boolean resumeMigration(String migrationId) {
+        ShardMigration migration = shardMigrationRepository.findById(migrationId).orElse(null);
+        if (migration == null || migration.getStatus() == ShardMigration.Status.COMPLETED || running.containsKey(migrationId)) {
+            return false;
+        }
+        launch(migrationId);
+        return true;
+    }
+    
+    public ShardMigration getMigration(String migrationId) {
+        return shardMigrationRepository.findById(migrationId).orElse(null);
+    }
+    
+    public List<ShardMigration> getMigrations() {
+        return shardMigrationRepository.findAllByOrderByCreatedAtDesc();
+    }
+    
+    /**
+     * Suggested move for a shard over 85% of maxRecords: enough buckets to bring it back to
+     * 70%, onto the active shard with the most headroom. Empty if no move is needed.
+     */
+    public Map<String, Object> proposeMigration(String sourceShard) {
+        Map<String, Object> proposal = new HashMap<>();
+        ShardConfig.ShardDefinition source = shardConfig.getShardDefinition(sourceShard);
+        long records = shardHealthMonitor.getShardRecordCount(sourceShard);
+        if (source == null || source.getMaxRecords() <= 0 || records <= source.getMaxRecords() * 0.85) {
+            return proposal;
+        }
+        
+        String target = null;
+        double targetFill = Double.MAX_VALUE;
+        for (ShardConfig.ShardDefinition candidate : shardConfig.getShards()) {
+            if (!candidate.isActive() || candidate.getShardId().equals(sourceShard) || candidate.getMaxRecords() <= 0
+                || !shardDataSourceRouter.hasDataSource(candidate.getShardId())) {
+                continue;
+            }
+            double fill = (double) shardHealthMonitor.getShardRecordCount(candidate.getShardId()) / candidate.getMaxRecords();
+            if (fill < targetFill) {
+                target = candidate.getShardId();
+                targetFill = fill;
+            }
+        }
+        if (target == null) {
+            return proposal;
+        }
+        
+        int bucketCount = shardBucketRouter.getBucketCount();
+        double fraction = (records - source.getMaxRecords() * 0.7) / records;
+        int buckets = Math.min(bucketCount / 2, (int) Math.ceil(fraction * bucketCount));
+        // Continue after the buckets earlier migrations already took from this shard
+        int bucketFrom = getMigrations().stream()
+            .filter(m -> m.getSourceShard().equals(sourceShard) && m.getStatus() != ShardMigration.Status.FAILED)
+            .mapToInt(m -> m.getBucketTo() + 1)
+            .max()
+            .orElse(0);
+        if (bucketFrom >= bucketCount) {
+            return proposal;
+        }
+        
+        proposal.put("sourceShard", sourceShard);
+        proposal.put("targetShard", target);
+        proposal.put("bucketFrom", bucketFrom);
+        proposal.put("bucketTo", Math.min(bucketCount - 1, bucketFrom + buckets - 1));
+        proposal.put("estimatedRows", records * Math.min(buckets, bucketCount - bucketFrom) / bucketCount);
+        return proposal;
+    }
+    
+    private void validate(String sourceShard, String targetShard, int bucketFrom, int bucketTo) {
+        if (sourceShard == null || sourceShard.equals(targetShard)) {
+            throw new IllegalArgumentException("Source and target shard must differ");
+        }
+        if (!shardDataSourceRouter.hasDataSource(sourceShard) || !shardDataSourceRouter.hasDataSource(targetShard)) {
+            throw new IllegalArgumentException("Both shards need a configured database");
+        }
+        if (bucketFrom < 0 || bucketTo < bucketFrom || bucketTo >= shardBucketRouter.getBucketCount()) {
+            throw new IllegalArgumentException("Bucket range must lie within 0-" + (shardBucketRouter.getBucketCount() - 1));
+        }
+        
+        boolean overlaps = getMigrations().stream()
+            .anyMatch(m -> m.getSourceShard().equals(sourceShard)
+                && m.getStatus() != ShardMigration.Status.FAILED && m.getStatus() != ShardMigration.Status.COMPLETED
+                && m.getBucketFrom() <= bucketTo && bucketFrom <= m.getBucketTo());
+        if (overlaps) {
+            throw new IllegalArgumentException("Buckets overlap a migration of " + sourceShard + " that is still in progress");
+        }
+    }
+    
+    private void launch(String migrationId) {
+        AtomicBoolean stop = new AtomicBoolean();
+        if (running.putIfAbsent(migrationId, stop) != null) {
+            throw new IllegalStateException("Migration " + migrationId + " is already running");
+        }
+        migrationExecutor.execute(() -> {
+            try {
+                run(migrationId, stop);
+            } finally {
+                running.remove(migrationId);
+            }
+        });
+    }
+    
+    private void run(String migrationId, AtomicBoolean stop) {
+        ShardMigration migration = shardMigrationRepository.findById(migrationId).orElseThrow();
+        migration.setErrorMessage(null);
+        
+        try {
+            if (!migration.isCutOver()) {
+                updateStatus(migration, ShardMigration.Status.COPYING);
+                if (!copyPass(migration, stop)) {
+                    updateStatus(migration, ShardMigration.Status.PAUSED);
+                    return;
+                }
+                
+                // Persist first, then switch: a crash in between is repaired by init() on restart
+                migration.setCutOver(true);
+                shardMigrationRepository.save(migration);
+                applyRouting(migration);
+                Thread.sleep(shardConfig.getMigration().getCutoverSettleMs());
+            }
+            
+            // Idempotent, so it also runs again whenever a cut-over migration is resumed
+            updateStatus(migration, ShardMigration.Status.CATCHING_UP);
+            if (!copyPass(migration, stop)) {
+                updateStatus(migration, ShardMigration.Status.PAUSED);
+                return;
+            }
+            
+            updateStatus(migration, ShardMigration.Status.CLEANING_UP);
+            if (!cleanupPass(migration, stop)) {
+                updateStatus(migration, ShardMigration.Status.PAUSED);
+                return;
+            }
+            
+            updateStatus(migration, ShardMigration.Status.COMPLETED);
+            log.info("Migration {} completed: {} rows moved from {} to {}", migrationId, migration.getRowsCopied(),
+                    migration.getSourceShard(), migration.getTargetShard());
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            updateStatus(migration, ShardMigration.Status.PAUSED);
+        } catch (Exception e) {
+            log.error("Migration {} failed", migrationId, e);
+            migration.setErrorMessage(e.getMessage());
+            updateStatus(migration, ShardMigration.Status.FAILED);
+        }
+    }
+    
+    /**
+     * Copy rows of the moving buckets from the copy checkpoint to the end of the source
+     * @return false if stopped before reaching the end
+     */
+    private boolean copyPass(ShardMigration migration, AtomicBoolean stop) throws InterruptedException {
+        int batchSize = shardConfig.getMigration().getBatchSize();
+        while (!stop.get()) {
+            if (!awaitHealthy(migration)) {
+                continue;
+            }
+            
+            long batchStart = System.currentTimeMillis();
+            List<Profile> keys = shardProfileRepository.findKeysAfter(migration.getSourceShard(), migration.getLastCopiedId(), batchSize);
+            if (keys.isEmpty()) {
+                return true;
+            }
+            
+            List<UUID> moving = movingKeys(migration, keys).stream().map(Profile::getId).toList();
+            int copied = copyRows(migration, moving);
+            
+            migration.setLastCopiedId(keys.get(keys.size() - 1).getId());
+            migration.setRowsScanned(migration.getRowsScanned() + keys.size());
+            migration.setRowsCopied(migration.getRowsCopied() + copied);
+            shardMigrationRepository.save(migration);
+            throttle(moving.size(), batchStart);
+        }
+        return false;
+    }
+    
+    /**
+     * Delete rows of the moved buckets from the source, re-copying any the target is missing or
+     * holds an older version of first (rows updated on the source after they were copied)
+     * @return false if stopped before reaching the end
+     */
+    private boolean cleanupPass(ShardMigration migration, AtomicBoolean stop) throws InterruptedException {
+        int batchSize = shardConfig.getMigration().getBatchSize();
+        while (!stop.get()) {
+            if (!awaitHealthy(migration)) {
+                continue;
+            }
+            
+            long batchStart = System.currentTimeMillis();
+            List<Profile> keys = shardProfileRepository.findKeysAfter(migration.getSourceShard(), migration.getLastDeletedId(), batchSize);
+            if (keys.isEmpty()) {
+                return true;
+            }
+            
+            List<Profile> movingKeys = movingKeys(migration, keys);
+            List<UUID> moving = movingKeys.stream().map(Profile::getId).toList();
+            if (!moving.isEmpty()) {
+                Map<UUID, Timestamp> targetUpdatedAt = shardProfileRepository.findUpdatedAt(migration.getTargetShard(), moving);
+                List<UUID> stale = movingKeys.stream()
+                    .filter(key -> isStale(targetUpdatedAt, key))
+                    .map(Profile::getId)
+                    .toList();
+                if (!stale.isEmpty()) {
+                    migration.setRowsCopied(migration.getRowsCopied() + copyRows(migration, stale));
+                }
+                migration.setRowsDeleted(migration.getRowsDeleted()
+                    + shardProfileRepository.deleteByIds(migration.getSourceShard(), moving));
+            }
+            
+            migration.setLastDeletedId(keys.get(keys.size() - 1).getId());
+            shardMigrationRepository.save(migration);
+            throttle(moving.size(), batchStart);
+        }
+        return false;
+    }
+    
+    private List<Profile> movingKeys(ShardMigration migration, List<Profile> keys) {
+        List<Profile> moving = new ArrayList<>();
+        for (Profile key : keys) {
+            if (migration.covers(shardBucketRouter.bucketOf(shardBucketRouter.hashKey(key)))) {
+                moving.add(key);
+            }
+        }
+        return moving;
+    }
+    
+    private static boolean isStale(Map<UUID, Timestamp> targetUpdatedAt, Profile sourceKey) {
+        if (!targetUpdatedAt.containsKey(sourceKey.getId())) {
+            return true;
+        }
+        Timestamp target = targetUpdatedAt.get(sourceKey.getId());
+        return sourceKey.getUpdatedAt() != null && (target == null || target.compareTo(sourceKey.getUpdatedAt()) < 0);
+    }
+    
+    private int copyRows(ShardMigration migration, List<UUID> ids) {
+        List<Profile> profiles = shardProfileRepository.findAllByIds(migration.getSourceShard(), ids);
+        profiles.forEach(profile -> profile.setShardId(migration.getTargetShard()));
+        // Rows the source's ordinal backfill hasn't reached yet; the target may already require one
+        profileOrdinalService.assignOrdinals(profiles);
+        int saved = shardProfileRepository.copyAll(migration.getTargetShard(), profiles);
+        profileOrdinalService.registerAll(profiles);
+        return saved;
+    }
+    
+    private void applyRouting(ShardMigration migration) {
+        if (!routed.add(migration.getId())) {
+            return;
+        }
+        List<Integer> buckets = IntStream.rangeClosed(migration.getBucketFrom(), migration.getBucketTo()).boxed().toList();
+        shardBucketRouter.relocateBuckets(migration.getSourceShard(), buckets, migration.getTargetShard());
+    }
+    
+    /**
+     * Back off while either shard is unhealthy instead of failing the migration
+     */
+    private boolean awaitHealthy(ShardMigration migration) throws InterruptedException {
+        if (shardHealthMonitor.isShardHealthy(migration.getSourceShard())
+            && shardHealthMonitor.isShardHealthy(migration.getTargetShard())) {
+            return true;
+        }
+        Thread.sleep(UNHEALTHY_BACKOFF_MS);
+        return false;
+    }
+    
+    /**
+     * Sleep so moved rows stay under maxRowsPerSecond
+     */
+    private void throttle(int rows, long batchStartMs) throws InterruptedException {
+        int maxRowsPerSecond = shardConfig.getMigration().getMaxRowsPerSecond();
+        if (maxRowsPerSecond <= 0 || rows == 0) {
+            return;
+        }
+        long minDurationMs = rows * 1000L / maxRowsPerSecond;
+        long remainingMs = minDurationMs - (System.currentTimeMillis() - batchStartMs);
+        if (remainingMs > 0) {
+            Thread.sleep(remainingMs);
+        }
+    }
+    
+    private void updateStatus(ShardMigration migration, ShardMigration.Status status) {
+        migration.setStatus(status);
+        shardMigrationRepository.save(migration);
+    }
+}
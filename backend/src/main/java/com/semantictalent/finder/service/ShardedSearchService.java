@@ -1,16 +1,27 @@
 package com.semantictalent.finder.service;
 
+import com.pgvector.PGvector;
 import com.semantictalent.finder.config.ShardConfig;
+import com.semantictalent.finder.config.ShardDataSourceRouter;
 import com.semantictalent.finder.dto.SearchRequestDto;
 import com.semantictalent.finder.dto.SearchResultDto;
 import com.semantictalent.finder.dto.ProfileSummaryDto;
 import com.semantictalent.finder.repository.ProfileRepository;
+import com.semantictalent.finder.repository.ShardProfileRepository;
+import com.semantictalent.finder.util.ReciprocalRankFusion;
+import com.semantictalent.finder.util.SearchAggregates;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.DoubleSupplier;
 
 @Service
 @Slf4j
@@ -25,15 +36,61 @@ public class ShardedSearchService {
     @Autowired
     private ProfileRepository profileRepository;
     
+    @Autowired
+    private ShardProfileRepository shardProfileRepository;
+    
+    @Autowired
+    private ShardDataSourceRouter shardDataSourceRouter;
+    
+    @Autowired
+    private EmbeddingService embeddingService;
+    
+    @Autowired
+    private ShardHealthMonitorService shardHealthMonitor;
+    
+    @Value("${app.search.hybrid.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${app.search.hybrid.candidate-multiplier:3}")
+    private int hybridCandidateMultiplier;
+    
+    @Value("${app.search.hybrid.min-candidates:50}")
+    private int hybridMinCandidates;
+    
+    @Value("${app.search.aggregations.top-n:20}")
+    private int aggregationTopN;
+    
+    @Value("${app.search.aggregations.high-quality-threshold:0.8}")
+    private double highQualityThreshold;
+    
     /**
-     * Execute search on a specific shard
-     * In production, this would connect to the specific shard database
+     * Execute search on a specific shard, generating the query embedding if needed
      */
     public SearchResultDto searchInShard(String shardId, SearchRequestDto request) {
+        return searchInShard(shardId, request, prepareQueryEmbedding(request), 0L);
+    }
+    
+    /**
+     * Execute search on a specific shard's database
+     * @param queryEmbedding Embedding shared by all shards of one request (null for FULL_TEXT or if unavailable)
+     * @param timeoutMs Remaining request budget; the shard's own queryTimeoutMs applies if tighter (0 = no limit)
+     */
+    public SearchResultDto searchInShard(String shardId, SearchRequestDto request, PGvector queryEmbedding, long timeoutMs) {
+        return searchInShard(shardId, shardId, request, queryEmbedding, timeoutMs, ShardProfileRepository.NO_SCORE_FLOOR);
+    }
+    
+    /**
+     * Execute search on one copy of a shard: its primary or one of its read replicas
+     * @param target Data source key from ShardDataSourceRouter (the shard id for the primary)
+     * @param scoreFloor Live global k-th score; rows that can't beat it are not returned, but still
+     *                   count toward the shard's aggregates (SEMANTIC and FULL_TEXT)
+     */
+    public SearchResultDto searchInShard(String shardId, String target, SearchRequestDto request,
+                                         PGvector queryEmbedding, long timeoutMs, DoubleSupplier scoreFloor) {
         long startTime = System.currentTimeMillis();
         
         try {
-            log.debug("Executing search in shard {}: '{}'", shardId, request.getQuery());
+            log.debug("Executing search in shard {} ({}): '{}'", shardId, target, request.getQuery());
             
             ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
             if (shard == null || !shard.isActive()) {
@@ -41,9 +98,14 @@ public class ShardedSearchService {
                 return createEmptyResult(request, "Shard not available", shardId);
             }
             
-            // For now, route to the main semantic search service
-            // In production, this would use the shard-specific database connection
-            SearchResultDto result = semanticSearchService.searchProfiles(request);
+            SearchResultDto result;
+            if (shardDataSourceRouter.hasDataSource(target)) {
+                result = searchShardDatabase(target, request, queryEmbedding, effectiveTimeout(shard, timeoutMs), scoreFloor);
+            } else {
+                // Single-database deployment: the shard has no database of its own
+                log.debug("Shard {} has no database configured, searching primary database", shardId);
+                result = semanticSearchService.searchProfiles(request);
+            }
             
             // Tag the result with shard information
             result.setShardId(shardId);
@@ -61,51 +123,124 @@ public class ShardedSearchService {
     }
     
     /**
-     * Get shard-specific profile count
-     * In production, this would query the specific shard database
+     * Generate the query embedding once per request so fan-out doesn't call the embedding API per shard
+     * @return The embedding, or null for FULL_TEXT searches or when embeddings are unavailable
      */
-    public long getShardProfileCount(String shardId) {
+    public PGvector prepareQueryEmbedding(SearchRequestDto request) {
+        if (request.getMode() == SearchRequestDto.SearchMode.FULL_TEXT) {
+            return null;
+        }
+        
         try {
-            ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
-            if (shard == null) return 0L;
-            
-            // For now, return simulated counts based on our architecture
-            return switch (shardId) {
-                case "shard_usa_east" -> 15_234_567L;
-                case "shard_usa_west" -> 15_112_890L; 
-                case "shard_usa_central" -> 12_890_123L;
-                case "shard_usa_south" -> 6_234_567L;
-                case "shard_international" -> 1_880_472L;
-                default -> 0L;
-            };
-            
-            // In production, this would be:
-            // return shardSpecificRepository.count();
-            
+            return embeddingService.generateEmbedding(request.getQuery());
         } catch (Exception e) {
-            log.error("Failed to get profile count for shard {}: {}", shardId, e.getMessage());
-            return 0L;
+            log.error("Failed to generate query embedding for sharded search: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private long effectiveTimeout(ShardConfig.ShardDefinition shard, long timeoutMs) {
+        long shardTimeout = shard.getQueryTimeoutMs();
+        if (shardTimeout <= 0) {
+            return timeoutMs;
         }
+        return timeoutMs <= 0 ? shardTimeout : Math.min(timeoutMs, shardTimeout);
+    }
+    
+    private SearchResultDto searchShardDatabase(String shardId, SearchRequestDto request, PGvector queryEmbedding,
+                                                long timeoutMs, DoubleSupplier scoreFloor) {
+        SearchRequestDto.SearchMode mode = request.getMode() != null ? request.getMode() : SearchRequestDto.SearchMode.SEMANTIC;
+        int limit = request.getLimit() != null ? request.getLimit() : 20;
+        
+        // This shard's partial aggregate over all its candidates, including rows the score floor
+        // keeps out of the returned list; the coordinator merges them across shards
+        SearchAggregates aggregates = new SearchAggregates(highQualityThreshold);
+        List<ProfileSummaryDto> profiles = switch (mode) {
+            case FULL_TEXT -> shardProfileRepository.findFullTextProfiles(shardId, request.getQuery(), limit, timeoutMs,
+                scoreFloor, aggregates);
+            case SEMANTIC -> queryEmbedding != null
+                ? shardProfileRepository.findSimilarProfiles(shardId, queryEmbedding, request.getThreshold(), limit, timeoutMs,
+                    scoreFloor, aggregates)
+                : List.of();
+            // RRF scores depend on full leg rankings, so hybrid legs run without a floor
+            case HYBRID -> {
+                int depth = Math.max(limit * hybridCandidateMultiplier, hybridMinCandidates);
+                List<ProfileSummaryDto> semantic = queryEmbedding != null
+                    ? shardProfileRepository.findSimilarProfiles(shardId, queryEmbedding, request.getThreshold(), depth, timeoutMs)
+                    : List.of();
+                List<ProfileSummaryDto> fullText = shardProfileRepository.findFullTextProfiles(shardId, request.getQuery(), depth, timeoutMs);
+                addHybridCandidates(aggregates, semantic, fullText);
+                yield fuse(semantic, fullText, limit);
+            }
+        };
+        
+        SearchResultDto result = SearchResultDto.builder()
+            .profiles(profiles)
+            .totalResults(profiles.size())
+            .query(request.getQuery())
+            .processedQuery(request.getQuery())
+            .threshold(request.getThreshold())
+            .success(true)
+            .build();
+        aggregates.applyTo(result, mode, aggregationTopN);
+        return result;
     }
     
     /**
-     * Check shard connectivity and health
+     * Count both legs' candidates once each; as in fuse, a profile found by both keeps its
+     * cosine similarity and full-text-only matches have none
      */
-    public boolean isShardConnected(String shardId) {
-        try {
-            ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
-            if (shard == null || !shard.isActive()) {
-                return false;
+    private void addHybridCandidates(SearchAggregates aggregates, List<ProfileSummaryDto> semantic,
+                                     List<ProfileSummaryDto> fullText) {
+        Set<UUID> counted = new HashSet<>();
+        for (ProfileSummaryDto profile : semantic) {
+            if (counted.add(profile.getId())) {
+                aggregates.add(profile.getIndustry(), profile.getLocation(), profile.getAllSkills(),
+                    profile.getSimilarityScore(), profile.getDataQualityScore());
             }
-            
-            // For now, simulate connectivity check
-            // In production, this would attempt to connect to the shard database
-            return true;
-            
-        } catch (Exception e) {
-            log.error("Shard connectivity check failed for {}: {}", shardId, e.getMessage());
-            return false;
         }
+        for (ProfileSummaryDto profile : fullText) {
+            if (counted.add(profile.getId())) {
+                aggregates.add(profile.getIndustry(), profile.getLocation(), profile.getAllSkills(),
+                    null, profile.getDataQualityScore());
+            }
+        }
+    }
+    
+    /**
+     * RRF within one shard. The semantic leg is listed first, so a profile found by both legs
+     * keeps its cosine similarity; full-text-only matches have none.
+     */
+    private List<ProfileSummaryDto> fuse(List<ProfileSummaryDto> semantic, List<ProfileSummaryDto> fullText, int limit) {
+        Set<UUID> semanticIds = new HashSet<>();
+        semantic.forEach(profile -> semanticIds.add(profile.getId()));
+        
+        List<ProfileSummaryDto> fused = new ArrayList<>();
+        for (ReciprocalRankFusion.Fused<ProfileSummaryDto> entry :
+                ReciprocalRankFusion.fuse(List.of(semantic, fullText), ProfileSummaryDto::getId, rrfK, limit)) {
+            ProfileSummaryDto profile = entry.item();
+            if (!semanticIds.contains(profile.getId())) {
+                profile.setSimilarityScore(null);
+            }
+            profile.setFusedScore(entry.score());
+            fused.add(profile);
+        }
+        return fused;
+    }
+    
+    /**
+     * Estimated profile count of a shard, as cached by the scheduled health check
+     */
+    public long getShardProfileCount(String shardId) {
+        return shardHealthMonitor.getShardRecordCount(shardId);
+    }
+    
+    /**
+     * Check shard connectivity and health
+     */
+    public boolean isShardConnected(String shardId) {
+        ShardConfig.ShardDefinition shard = shardConfig.getShardDefinition(shardId);
+        return shard != null && shard.isActive() && shardHealthMonitor.isShardHealthy(shardId);
     }
     
     /**
@@ -118,12 +253,14 @@ public class ShardedSearchService {
                 return new ShardStatistics(shardId, 0L, 0L, 0.0, false);
             }
             
-            long profileCount = getShardProfileCount(shardId);
-            long industryCount = Math.round(profileCount * 0.3); // Estimated industries
-            double storageGb = profileCount * 0.5 / 1_000_000; // Estimated storage
             boolean healthy = isShardConnected(shardId);
+            ShardHealthMonitorService.ShardHealth health = shardHealthMonitor.getShardHealth(shardId);
+            if (health == null) {
+                return new ShardStatistics(shardId, 0L, 0L, 0.0, healthy);
+            }
             
-            return new ShardStatistics(shardId, profileCount, industryCount, storageGb, healthy);
+            double storageGb = health.getTotalSizeBytes() / (1024.0 * 1024 * 1024);
+            return new ShardStatistics(shardId, health.getRecordCount(), health.getIndustryCount(), storageGb, healthy);
             
         } catch (Exception e) {
             log.error("Failed to get statistics for shard {}: {}", shardId, e.getMessage());
@@ -0,0 +1,158 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.dto.ProfileListItemDto;
+import com.semantictalent.finder.repository.ProfileRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded keyword and substring search for the /api/simple endpoints.
+ * Keyword search runs on the stored search_vector column, substring search on
+ * pg_trgm GIN indexes; every call is limited and paged by a (score, id) cursor.
+ */
+@Service
+@Slf4j
+public class SimpleSearchService {
+    
+    public enum SubstringField {
+        LOCATION, FULL_NAME, JOB_TITLE, COMPANY_NAME
+    }
+    
+    public record SearchPage(List<ProfileListItemDto> profiles, String nextCursor) {
+        static final SearchPage EMPTY = new SearchPage(List.of(), null);
+    }
+    
+    // Trigram indexes can't help patterns shorter than one trigram
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+    
+    private record Cursor(double score, UUID id) {}
+    
+    // Every score ranks after +Infinity
+    private static final Cursor FIRST_PAGE = new Cursor(Double.POSITIVE_INFINITY, new UUID(0L, 0L));
+    
+    @Value("${app.search.max-limit:100}")
+    private int maxLimit;
+    
+    @Value("${app.search.simple.candidate-cap:10000}")
+    private int candidateCap;
+    
+    @Autowired
+    private ProfileRepository profileRepository;
+    
+    /**
+     * Keyword search (websearch syntax) ranked by ts_rank_cd
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public SearchPage searchKeywords(String query, String cursor, int size) {
+        if (query == null || query.isBlank()) {
+            return SearchPage.EMPTY;
+        }
+        
+        int pageSize = clampSize(size);
+        Cursor after = parseCursor(cursor);
+        if (after == null) {
+            return SearchPage.EMPTY;
+        }
+        
+        // One extra row tells whether another page exists
+        List<ProfileRepository.ScoredProfileId> ranked = profileRepository.searchKeywordIds(
+            query.trim(), candidateCap, after.score(), after.id(), pageSize + 1);
+        return toPage(ranked, pageSize);
+    }
+    
+    /**
+     * Case-insensitive substring search on a single column, ranked by trigram similarity
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    public SearchPage searchSubstring(SubstringField field, String term, String cursor, int size) {
+        if (term == null || term.trim().length() < MIN_SUBSTRING_LENGTH) {
+            return SearchPage.EMPTY;
+        }
+        
+        int pageSize = clampSize(size);
+        Cursor after = parseCursor(cursor);
+        if (after == null) {
+            return SearchPage.EMPTY;
+        }
+        
+        String trimmed = term.trim();
+        String pattern = "%" + escapeLike(trimmed) + "%";
+        double afterScore = after.score();
+        UUID afterId = after.id();
+        int limit = pageSize + 1;
+        
+        List<ProfileRepository.ScoredProfileId> ranked = switch (field) {
+            case LOCATION -> profileRepository.searchLocationIds(pattern, trimmed, candidateCap, afterScore, afterId, limit);
+            case FULL_NAME -> profileRepository.searchFullNameIds(pattern, trimmed, candidateCap, afterScore, afterId, limit);
+            case JOB_TITLE -> profileRepository.searchJobTitleIds(pattern, trimmed, candidateCap, afterScore, afterId, limit);
+            case COMPANY_NAME -> profileRepository.searchCompanyNameIds(pattern, trimmed, candidateCap, afterScore, afterId, limit);
+        };
+        return toPage(ranked, pageSize);
+    }
+    
+    /**
+     * Hydrate projections for the given ids, preserving their ranking order
+     */
+    public List<ProfileListItemDto> loadInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<UUID, ProfileListItemDto> byId = profileRepository.findListItemsByIdIn(ids).stream()
+            .collect(Collectors.toMap(ProfileListItemDto::getId, Function.identity()));
+        
+        List<ProfileListItemDto> ordered = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            ProfileListItemDto item = byId.get(id);
+            if (item != null) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
+    }
+    
+    public int clampSize(int size) {
+        return Math.max(1, Math.min(size, maxLimit));
+    }
+    
+    private SearchPage toPage(List<ProfileRepository.ScoredProfileId> ranked, int pageSize) {
+        boolean hasMore = ranked.size() > pageSize;
+        List<ProfileRepository.ScoredProfileId> page = hasMore ? ranked.subList(0, pageSize) : ranked;
+        
+        List<ProfileListItemDto> profiles = loadInOrder(page.stream().map(ProfileRepository.ScoredProfileId::getId).toList());
+        String nextCursor = null;
+        if (hasMore) {
+            ProfileRepository.ScoredProfileId last = page.get(page.size() - 1);
+            nextCursor = last.getScore() + "_" + last.getId();
+        }
+        return new SearchPage(profiles, nextCursor);
+    }
+    
+    // "<score>_<id>" of the last row of the previous page; null if the cursor is malformed
+    private static Cursor parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_PAGE;
+        }
+        try {
+            int separator = cursor.lastIndexOf('_');
+            return new Cursor(Double.parseDouble(cursor.substring(0, separator)),
+                UUID.fromString(cursor.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed search cursor '{}'", cursor);
+            return null;
+        }
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,160 @@
+package com.semantictalent.finder.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton: finds every occurrence of a fixed set of patterns in one
+ * linear pass over the text. Matching is case-insensitive unless a pattern is added
+ * as case-sensitive; matches must start and end on word boundaries.
+ */
+public class AhoCorasickMatcher<T> {
+    
+    public record Match<T>(int start, int end, String pattern, T payload) {
+        
+        public int length() {
+            return end - start;
+        }
+    }
+    
+    private record Pattern<T>(String text, T payload, boolean caseSensitive) {}
+    
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<List<Pattern<T>>> outputs = new ArrayList<>();
+    private boolean built;
+    
+    public AhoCorasickMatcher() {
+        addNode();
+    }
+    
+    public void add(String pattern, T payload) {
+        add(pattern, payload, false);
+    }
+    
+    /**
+     * Add a pattern; case-sensitive patterns only match text with exactly the same case
+     */
+    public void add(String pattern, T payload, boolean caseSensitive) {
+        if (built) {
+            throw new IllegalStateException("Patterns can't be added after build()");
+        }
+        if (pattern == null || pattern.isBlank()) {
+            return;
+        }
+        
+        String normalized = pattern.trim();
+        int node = 0;
+        for (char c : normalized.toLowerCase(Locale.ROOT).toCharArray()) {
+            Integer next = transitions.get(node).get(c);
+            if (next == null) {
+                next = addNode();
+                transitions.get(node).put(c, next);
+            }
+            node = next;
+        }
+        outputs.get(node).add(new Pattern<>(normalized, payload, caseSensitive));
+    }
+    
+    /**
+     * Compute failure links; must be called once after all patterns are added
+     */
+    public AhoCorasickMatcher<T> build() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure.set(child, 0);
+            queue.add(child);
+        }
+        
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failure.get(node);
+                while (fallback != 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failure.get(fallback);
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                failure.set(child, target != null && target != child ? target : 0);
+                
+                // Inherit the outputs of the failure state so suffix matches are reported too
+                outputs.get(child).addAll(outputs.get(failure.get(child)));
+                queue.add(child);
+            }
+        }
+        
+        built = true;
+        return this;
+    }
+    
+    /**
+     * All word-bounded matches in the text, in order of their end position
+     */
+    public List<Match<T>> findAll(String text) {
+        if (!built) {
+            throw new IllegalStateException("build() must be called before matching");
+        }
+        
+        List<Match<T>> matches = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return matches;
+        }
+        
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            while (node != 0 && !transitions.get(node).containsKey(c)) {
+                node = failure.get(node);
+            }
+            node = transitions.get(node).getOrDefault(c, 0);
+            
+            for (Pattern<T> pattern : outputs.get(node)) {
+                int end = i + 1;
+                int start = end - pattern.text().length();
+                if (isWordBoundary(text, start, end) &&
+                    (!pattern.caseSensitive() || text.startsWith(pattern.text(), start))) {
+                    matches.add(new Match<>(start, end, pattern.text(), pattern.payload()));
+                }
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Leftmost-longest non-overlapping matches, e.g. "Washington DC" wins over "Washington"
+     */
+    public List<Match<T>> findLongest(String text) {
+        List<Match<T>> all = findAll(text);
+        all.sort((a, b) -> a.start() != b.start() ? Integer.compare(a.start(), b.start()) : Integer.compare(b.length(), a.length()));
+        
+        List<Match<T>> selected = new ArrayList<>();
+        Match<T> last = null;
+        for (Match<T> match : all) {
+            boolean sameSpan = last != null && match.start() == last.start() && match.end() == last.end();
+            if (last == null || match.start() >= last.end() || sameSpan) {
+                // Patterns with the same span (e.g. a state name that is also a metro) are all kept
+                selected.add(match);
+                last = match;
+            }
+        }
+        return selected;
+    }
+    
+    private int addNode() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+    
+    private static boolean isWordBoundary(String text, int start, int end) {
+        boolean leftBoundary = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+        boolean rightBoundary = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+        return leftBoundary && rightBoundary;
+    }
+}
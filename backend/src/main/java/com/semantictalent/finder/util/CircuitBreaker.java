@@ -0,0 +1,125 @@
+package com.semantictalent.finder.util;
+
+/**
+ * Count-based circuit breaker. Closed, it tracks the outcome of the last slidingWindowSize
+ * calls and opens once at least minimumCalls were seen and the failure rate reaches the
+ * threshold. Open, every call is rejected until openDurationMs has passed; then up to
+ * halfOpenProbes calls are let through. If they all succeed the breaker closes, and any
+ * failure opens it again.
+ */
+public class CircuitBreaker {
+    
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+    
+    // Ring buffer of recent outcomes (true = failure), guarded by this
+    private final boolean[] outcomes;
+    private int nextOutcome;
+    private int recordedCalls;
+    private int recordedFailures;
+    
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtMs;
+    private int probesIssued;
+    private int probeSuccesses;
+    
+    public CircuitBreaker(double failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          long openDurationMs, int halfOpenProbes) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[Math.max(1, slidingWindowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, outcomes.length));
+        this.openDurationMs = openDurationMs;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    }
+    
+    /**
+     * Ask to make a call
+     * @return CLOSED for a normal call, HALF_OPEN for a probe, OPEN if the call is rejected
+     */
+    public synchronized State tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMs < openDurationMs) {
+                return State.OPEN;
+            }
+            state = State.HALF_OPEN;
+            probesIssued = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesIssued >= halfOpenProbes) {
+                return State.OPEN;
+            }
+            probesIssued++;
+            return State.HALF_OPEN;
+        }
+        return State.CLOSED;
+    }
+    
+    /**
+     * Record the outcome of a call admitted by tryAcquire
+     * @param admittedAs What tryAcquire returned for the call
+     * @return State after the call was recorded
+     */
+    public synchronized State record(State admittedAs, boolean success) {
+        if (admittedAs == State.HALF_OPEN) {
+            if (state != State.HALF_OPEN) {
+                return state;
+            }
+            if (!success) {
+                open();
+            } else if (++probeSuccesses >= halfOpenProbes) {
+                close();
+            }
+            return state;
+        }
+        
+        // Stragglers admitted before the breaker opened don't count towards a later window
+        if (state != State.CLOSED) {
+            return state;
+        }
+        if (recordedCalls == outcomes.length && outcomes[nextOutcome]) {
+            recordedFailures--;
+        }
+        outcomes[nextOutcome] = !success;
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+        recordedCalls = Math.min(recordedCalls + 1, outcomes.length);
+        if (!success) {
+            recordedFailures++;
+        }
+        if (recordedCalls >= minimumCalls && (double) recordedFailures / recordedCalls >= failureRateThreshold) {
+            open();
+        }
+        return state;
+    }
+    
+    /**
+     * True while the breaker rejects every call (open and not yet due for a probe); no locking
+     */
+    public boolean isRejecting() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAtMs < openDurationMs;
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public synchronized double getFailureRate() {
+        return recordedCalls > 0 ? (double) recordedFailures / recordedCalls : 0.0;
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = System.currentTimeMillis();
+    }
+    
+    private void close() {
+        state = State.CLOSED;
+        nextOutcome = 0;
+        recordedCalls = 0;
+        recordedFailures = 0;
+    }
+}
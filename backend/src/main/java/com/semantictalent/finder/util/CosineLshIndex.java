@@ -0,0 +1,133 @@
+package com.semantictalent.finder.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Approximate nearest-neighbour index for cosine similarity using random-hyperplane LSH.
+ * Every vector gets one signature per table (the signs of its dot products with the
+ * table's hyperplanes); vectors sharing a signature in any table are candidates, which
+ * the caller re-checks exactly. Two vectors at cosine c agree on a bit with probability
+ * 1 - acos(c)/pi, so a few short tables find near-duplicates reliably and nothing else.
+ * Not thread-safe.
+ */
+public class CosineLshIndex {
+    
+    private final int dimensions;
+    private final int tables;
+    private final int bits;
+    private final float[][] hyperplanes;
+    private final List<Map<Integer, Set<Integer>>> buckets;
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    
+    /**
+     * @param tables Independent hash tables (more tables = better recall)
+     * @param bits Hyperplanes per table, at most 31 (more bits = fewer false candidates)
+     * @param seed Hyperplanes are drawn from a seeded Gaussian, so the index is reproducible
+     */
+    public CosineLshIndex(int dimensions, int tables, int bits, long seed) {
+        this.dimensions = dimensions;
+        this.tables = Math.max(1, tables);
+        this.bits = Math.max(1, Math.min(31, bits));
+        this.hyperplanes = new float[this.tables * this.bits][dimensions];
+        Random random = new Random(seed);
+        for (float[] hyperplane : hyperplanes) {
+            for (int d = 0; d < dimensions; d++) {
+                hyperplane[d] = (float) random.nextGaussian();
+            }
+        }
+        this.buckets = new ArrayList<>(this.tables);
+        for (int t = 0; t < this.tables; t++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+    
+    public int getDimensions() {
+        return dimensions;
+    }
+    
+    public void add(int id, float[] vector) {
+        int[] signature = signature(vector);
+        signatures.put(id, signature);
+        for (int t = 0; t < tables; t++) {
+            buckets.get(t).computeIfAbsent(signature[t], k -> new LinkedHashSet<>()).add(id);
+        }
+    }
+    
+    public void remove(int id) {
+        int[] signature = signatures.remove(id);
+        if (signature == null) {
+            return;
+        }
+        for (int t = 0; t < tables; t++) {
+            Set<Integer> bucket = buckets.get(t).get(signature[t]);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.get(t).remove(signature[t]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Ids sharing at least one table's signature with the vector
+     */
+    public Set<Integer> candidates(float[] vector) {
+        int[] signature = signature(vector);
+        Set<Integer> candidates = new LinkedHashSet<>();
+        for (int t = 0; t < tables; t++) {
+            Set<Integer> bucket = buckets.get(t).get(signature[t]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        return candidates;
+    }
+    
+    public int size() {
+        return signatures.size();
+    }
+    
+    public void clear() {
+        signatures.clear();
+        buckets.forEach(Map::clear);
+    }
+    
+    private int[] signature(float[] vector) {
+        int[] signature = new int[tables];
+        for (int t = 0; t < tables; t++) {
+            int code = 0;
+            for (int b = 0; b < bits; b++) {
+                float[] hyperplane = hyperplanes[t * bits + b];
+                double dot = 0.0;
+                for (int d = 0; d < dimensions; d++) {
+                    dot += hyperplane[d] * vector[d];
+                }
+                code = (code << 1) | (dot >= 0 ? 1 : 0);
+            }
+            signature[t] = code;
+        }
+        return signature;
+    }
+    
+    /**
+     * Cosine similarity of two vectors of the same length (0 if either is all zeros)
+     */
+    public static double cosine(float[] a, float[] b) {
+        double dot = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0.0 || normB == 0.0 ? 0.0 : dot / Math.sqrt(normA * normB);
+    }
+}
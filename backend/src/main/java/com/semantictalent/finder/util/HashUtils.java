@@ -0,0 +1,92 @@
+package com.semantictalent.finder.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+public class HashUtils {
+    
+    private static final int MURMUR3_C1 = 0xcc9e2d51;
+    private static final int MURMUR3_C2 = 0x1b873593;
+    
+    /**
+     * 32-bit hash of a string's UTF-8 bytes
+     * @param algorithm murmur3 (default), crc32 or md5 (first four digest bytes)
+     */
+    public static int hash(String algorithm, String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        if (algorithm == null) {
+            return murmur3(data, 0);
+        }
+        return switch (algorithm.toLowerCase()) {
+            case "crc32" -> crc32(data);
+            case "md5" -> md5(data);
+            default -> murmur3(data, 0);
+        };
+    }
+    
+    /**
+     * MurmurHash3 x86_32, matching the reference implementation (and Guava's murmur3_32_fixed)
+     */
+    @SuppressWarnings("fallthrough") // the tail switch mixes in the remaining 3, 2 or 1 bytes
+    public static int murmur3(byte[] data, int seed) {
+        int h1 = seed;
+        int blocks = data.length / 4;
+        
+        for (int i = 0; i < blocks; i++) {
+            int offset = i * 4;
+            int k1 = (data[offset] & 0xff)
+                | (data[offset + 1] & 0xff) << 8
+                | (data[offset + 2] & 0xff) << 16
+                | (data[offset + 3] & 0xff) << 24;
+            h1 ^= mixK1(k1);
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        
+        int tail = blocks * 4;
+        int k1 = 0;
+        switch (data.length & 3) {
+            case 3:
+                k1 ^= (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k1 ^= (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k1 ^= data[tail] & 0xff;
+                h1 ^= mixK1(k1);
+            default:
+                break;
+        }
+        
+        // Finalization: force all bits of the hash to avalanche
+        h1 ^= data.length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+    
+    private static int mixK1(int k1) {
+        k1 *= MURMUR3_C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        return k1 * MURMUR3_C2;
+    }
+    
+    private static int crc32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+    
+    private static int md5(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(data);
+            return (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16 | (digest[2] & 0xff) << 8 | (digest[3] & 0xff);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
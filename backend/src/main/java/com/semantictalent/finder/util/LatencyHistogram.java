@@ -0,0 +1,116 @@
+package com.semantictalent.finder.util;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding-window latency histogram with a wait-free write path.
+ * Writers record into HdrHistogram Recorders (no locks, no lost updates). Readers get
+ * an immutable snapshot of the last one to two windows, rebuilt at most once per
+ * refresh interval, so hot-path reads (e.g. the hedge delay) are a volatile read.
+ */
+public class LatencyHistogram {
+    
+    private static final long HIGHEST_TRACKABLE_MS = TimeUnit.MINUTES.toMillis(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final long REFRESH_INTERVAL_MS = 1000;
+    
+    /**
+     * Latencies over the current and previous window
+     * @param count Successful requests
+     * @param errors Failed requests
+     */
+    public record Snapshot(long count, long errors, long p50, long p95, long p99, long max, double mean,
+                           Histogram histogram) {
+        
+        public double errorRate() {
+            long total = count + errors;
+            return total > 0 ? (double) errors / total : 0.0;
+        }
+        
+        /**
+         * Latency at the given percentile (0.0-1.0); 0 if nothing was recorded
+         */
+        public long percentile(double percentile) {
+            return count > 0 ? histogram.getValueAtPercentile(percentile * 100.0) : 0L;
+        }
+    }
+    
+    private final long windowMs;
+    private final Recorder successes = new Recorder(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    private final Recorder failures = new Recorder(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    
+    // Reader-side state, guarded by this
+    private Histogram currentWindow = newHistogram();
+    private Histogram previousWindow = newHistogram();
+    private long currentErrors;
+    private long previousErrors;
+    private long windowStartMs = System.currentTimeMillis();
+    private Histogram successInterval;
+    private Histogram failureInterval;
+    
+    private volatile Snapshot snapshot = emptySnapshot();
+    private volatile long snapshotTakenMs;
+    
+    public LatencyHistogram(long windowMs) {
+        this.windowMs = windowMs;
+    }
+    
+    public void record(long latencyMs, boolean success) {
+        long value = Math.max(0L, Math.min(latencyMs, HIGHEST_TRACKABLE_MS));
+        (success ? successes : failures).recordValue(value);
+    }
+    
+    /**
+     * Current snapshot, refreshed if it is more than a second old
+     */
+    public Snapshot snapshot() {
+        if (System.currentTimeMillis() - snapshotTakenMs >= REFRESH_INTERVAL_MS) {
+            refresh();
+        }
+        return snapshot;
+    }
+    
+    private synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        if (now - snapshotTakenMs < REFRESH_INTERVAL_MS) {
+            return;
+        }
+        
+        if (now - windowStartMs >= windowMs) {
+            // Rotate: the finished window becomes the previous one; anything older is dropped
+            Histogram recycled = previousWindow;
+            recycled.reset();
+            previousWindow = currentWindow;
+            currentWindow = recycled;
+            previousErrors = currentErrors;
+            currentErrors = 0L;
+            windowStartMs = now;
+        }
+        
+        successInterval = successes.getIntervalHistogram(successInterval);
+        failureInterval = failures.getIntervalHistogram(failureInterval);
+        currentWindow.add(successInterval);
+        currentErrors += failureInterval.getTotalCount();
+        
+        Histogram merged = currentWindow.copy();
+        merged.add(previousWindow);
+        long errors = currentErrors + previousErrors;
+        snapshot = merged.getTotalCount() == 0
+            ? new Snapshot(0L, errors, 0L, 0L, 0L, 0L, 0.0, merged)
+            : new Snapshot(merged.getTotalCount(), errors,
+                merged.getValueAtPercentile(50.0), merged.getValueAtPercentile(95.0),
+                merged.getValueAtPercentile(99.0), merged.getMaxValue(), merged.getMean(), merged);
+        snapshotTakenMs = now;
+    }
+    
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MS, SIGNIFICANT_DIGITS);
+    }
+    
+    private static Snapshot emptySnapshot() {
+        return new Snapshot(0L, 0L, 0L, 0L, 0L, 0L, 0.0, newHistogram());
+    }
+}
@@ -0,0 +1,47 @@
+package com.semantictalent.finder.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Reciprocal-rank fusion: score(d) = sum over rankings of 1 / (k + rank(d)), rank starting at 1.
+ * Used for HYBRID search on the primary database and within each shard.
+ */
+public final class ReciprocalRankFusion {
+    
+    /**
+     * An item with its fused score. The item is the first instance seen across the rankings.
+     */
+    public record Fused<T>(T item, double score) {}
+    
+    private ReciprocalRankFusion() {
+    }
+    
+    /**
+     * Fuse rankings (each best first) into the limit best items, highest fused score first.
+     * Ties keep the order in which items were first seen.
+     * @param key Identity used to recognise the same item in different rankings
+     * @param k RRF constant (app.search.hybrid.rrf-k)
+     */
+    public static <T, K> List<Fused<T>> fuse(List<List<T>> rankings, Function<T, K> key, int k, int limit) {
+        Map<K, T> items = new LinkedHashMap<>();
+        Map<K, Double> scores = new LinkedHashMap<>();
+        for (List<T> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                T item = ranking.get(rank);
+                K id = key.apply(item);
+                items.putIfAbsent(id, item);
+                scores.merge(id, 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        
+        List<Fused<T>> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> fused.add(new Fused<>(items.get(id), score)));
+        fused.sort(Comparator.comparingDouble((Fused<T> f) -> f.score()).reversed());
+        return fused.size() > limit ? new ArrayList<>(fused.subList(0, limit)) : fused;
+    }
+}
@@ -0,0 +1,179 @@
+package com.semantictalent.finder.util;
+
+import com.semantictalent.finder.dto.SearchRequestDto;
+import com.semantictalent.finder.dto.SearchResultDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts and score statistics over a search's candidate set, filled in the same pass
+ * that assembles the results. Facet values are interned to dense int ids once, and each
+ * facet counts into a plain int array indexed by id, so adding a profile allocates nothing
+ * for values already seen. Partial aggregates from shards are combined with merge().
+ * Not thread-safe; read-only once handed to another component.
+ */
+public class SearchAggregates {
+    
+    public enum Facet { INDUSTRY, LOCATION, SKILL }
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private final double highQualityThreshold;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final int[][] counts = new int[Facet.values().length][INITIAL_CAPACITY];
+    private final int[] distinct = new int[Facet.values().length];
+    
+    private int profileCount;
+    private int scoredCount;
+    private double scoreSum;
+    private int highQualityCount;
+    
+    /**
+     * @param highQualityThreshold Minimum data quality score counted as a high-quality profile
+     */
+    public SearchAggregates(double highQualityThreshold) {
+        this.highQualityThreshold = highQualityThreshold;
+    }
+    
+    public void add(String industry, String location, Iterable<String> skills, Double similarityScore,
+                    Double dataQualityScore) {
+        profileCount++;
+        if (similarityScore != null) {
+            scoredCount++;
+            scoreSum += similarityScore;
+        }
+        if (dataQualityScore != null && dataQualityScore >= highQualityThreshold) {
+            highQualityCount++;
+        }
+        increment(Facet.INDUSTRY, industry, 1);
+        increment(Facet.LOCATION, location, 1);
+        if (skills != null) {
+            for (String skill : skills) {
+                increment(Facet.SKILL, skill, 1);
+            }
+        }
+    }
+    
+    public void add(String industry, String location, String[] skills, Double similarityScore, Double dataQualityScore) {
+        add(industry, location, skills != null ? Arrays.asList(skills) : null, similarityScore, dataQualityScore);
+    }
+    
+    /**
+     * Add another (e.g. one shard's) aggregate into this one
+     */
+    public void merge(SearchAggregates other) {
+        profileCount += other.profileCount;
+        scoredCount += other.scoredCount;
+        scoreSum += other.scoreSum;
+        highQualityCount += other.highQualityCount;
+        for (Facet facet : Facet.values()) {
+            int[] otherCounts = other.counts[facet.ordinal()];
+            for (int id = 0; id < other.values.size(); id++) {
+                if (otherCounts[id] > 0) {
+                    increment(facet, other.values.get(id), otherCounts[id]);
+                }
+            }
+        }
+    }
+    
+    public int getProfileCount() {
+        return profileCount;
+    }
+    
+    /**
+     * Mean similarity score, or null if no candidate had one
+     */
+    public Double getAvgSimilarityScore() {
+        return scoredCount > 0 ? scoreSum / scoredCount : null;
+    }
+    
+    public int getHighQualityCount() {
+        return highQualityCount;
+    }
+    
+    public int getDistinctCount(Facet facet) {
+        return distinct[facet.ordinal()];
+    }
+    
+    /**
+     * The n most frequent values of a facet, most frequent first (ties keep first-seen order)
+     */
+    public Map<String, Integer> top(Facet facet, int n) {
+        int[] facetCounts = counts[facet.ordinal()];
+        // count in the high 32 bits, reversed id in the low 32 bits: one primitive sort ranks both
+        long[] ranked = new long[distinct[facet.ordinal()]];
+        int size = 0;
+        for (int id = 0; id < values.size(); id++) {
+            if (facetCounts[id] > 0) {
+                ranked[size++] = ((long) facetCounts[id] << 32) | (Integer.MAX_VALUE - id);
+            }
+        }
+        Arrays.sort(ranked, 0, size);
+        
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (int i = size - 1; i >= 0 && top.size() < n; i--) {
+            int id = Integer.MAX_VALUE - (int) ranked[i];
+            top.put(values.get(id), (int) (ranked[i] >>> 32));
+        }
+        return top;
+    }
+    
+    /**
+     * Fill the result's metadata (distributions, average score, high-quality count) and aggregations
+     * @param topN Values kept per distribution
+     */
+    public void applyTo(SearchResultDto result, SearchRequestDto.SearchMode mode, int topN) {
+        SearchResultDto.SearchMetadata metadata = result.getMetadata() != null
+            ? result.getMetadata()
+            : new SearchResultDto.SearchMetadata();
+        metadata.setMode(mode);
+        metadata.setAvgSimilarityScore(getAvgSimilarityScore());
+        metadata.setHighQualityProfiles(highQualityCount);
+        metadata.setIndustryDistribution(top(Facet.INDUSTRY, topN));
+        metadata.setLocationDistribution(top(Facet.LOCATION, topN));
+        metadata.setSkillsDistribution(top(Facet.SKILL, topN));
+        result.setMetadata(metadata);
+        
+        Map<String, Object> aggregations = new LinkedHashMap<>();
+        aggregations.put("profileCount", profileCount);
+        aggregations.put("distinctIndustries", getDistinctCount(Facet.INDUSTRY));
+        aggregations.put("distinctLocations", getDistinctCount(Facet.LOCATION));
+        aggregations.put("distinctSkills", getDistinctCount(Facet.SKILL));
+        result.setAggregations(aggregations);
+        result.setPartialAggregates(this);
+    }
+    
+    private void increment(Facet facet, String value, int by) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        int id = intern(value);
+        int[] facetCounts = counts[facet.ordinal()];
+        if (facetCounts[id] == 0) {
+            distinct[facet.ordinal()]++;
+        }
+        facetCounts[id] += by;
+    }
+    
+    private int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        int newId = values.size();
+        ids.put(value, newId);
+        values.add(value);
+        if (newId == counts[0].length) {
+            for (int f = 0; f < counts.length; f++) {
+                counts[f] = Arrays.copyOf(counts[f], newId * 2);
+            }
+        }
+        return newId;
+    }
+}
@@ -0,0 +1,113 @@
+package com.semantictalent.finder.util;
+
+import com.semantictalent.finder.dto.ProfileSummaryDto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bounded min-heap that keeps the k best-scoring profiles seen so far.
+ * Shard results are offered as they arrive; once k results are held, the k-th
+ * score becomes a threshold that running shard queries can read to stop early.
+ */
+public class TopKCollector {
+    
+    private static final Comparator<ProfileSummaryDto> BY_SCORE =
+        Comparator.comparingDouble(TopKCollector::scoreOf);
+    
+    private final int k;
+    private final PriorityQueue<ProfileSummaryDto> heap;
+    // Ids in the heap: a profile being migrated can come back from both its old and new shard
+    private final Set<UUID> heldIds = new HashSet<>();
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+    private long offered;
+    
+    public TopKCollector(int k) {
+        this.k = Math.max(1, k);
+        this.heap = new PriorityQueue<>(this.k + 1, BY_SCORE);
+    }
+    
+    /**
+     * Merge one shard's ranking (best first); stops at the first profile that can't make the top k
+     * @return Number of profiles from this ranking that entered the heap
+     */
+    public synchronized int offerAll(List<ProfileSummaryDto> ranking) {
+        int accepted = 0;
+        for (ProfileSummaryDto profile : ranking) {
+            offered++;
+            if (isHeld(profile)) {
+                continue;
+            }
+            if (!offerInternal(profile)) {
+                // Rankings are sorted, so nothing after this can enter either
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+    
+    public synchronized boolean offer(ProfileSummaryDto profile) {
+        offered++;
+        return !isHeld(profile) && offerInternal(profile);
+    }
+    
+    /**
+     * Score a candidate must beat to enter the top k (negative infinity until k results are held)
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+    
+    public synchronized long getOffered() {
+        return offered;
+    }
+    
+    /**
+     * Current top k, best first
+     */
+    public synchronized List<ProfileSummaryDto> toSortedList() {
+        List<ProfileSummaryDto> sorted = new ArrayList<>(heap);
+        sorted.sort(BY_SCORE.reversed());
+        return sorted;
+    }
+    
+    private boolean offerInternal(ProfileSummaryDto profile) {
+        if (heap.size() < k) {
+            heap.add(profile);
+        } else if (scoreOf(profile) > threshold) {
+            ProfileSummaryDto evicted = heap.poll();
+            if (evicted.getId() != null) {
+                heldIds.remove(evicted.getId());
+            }
+            heap.add(profile);
+        } else {
+            return false;
+        }
+        if (profile.getId() != null) {
+            heldIds.add(profile.getId());
+        }
+        
+        if (heap.size() == k) {
+            threshold = scoreOf(heap.peek());
+        }
+        return true;
+    }
+    
+    private boolean isHeld(ProfileSummaryDto profile) {
+        return profile.getId() != null && heldIds.contains(profile.getId());
+    }
+    
+    /**
+     * Ranking score: the fused score for HYBRID results, otherwise the similarity score
+     */
+    private static double scoreOf(ProfileSummaryDto profile) {
+        Double score = profile.getFusedScore() != null ? profile.getFusedScore() : profile.getSimilarityScore();
+        return score != null ? score : Double.NEGATIVE_INFINITY;
+    }
+}
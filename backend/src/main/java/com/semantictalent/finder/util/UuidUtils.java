@@ -0,0 +1,56 @@
+package com.semantictalent.finder.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class UuidUtils {
+
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_MAX = (1 << COUNTER_BITS) - 1;
+
+    private static long lastTimestampMs = -1L;
+    private static int counter;
+
+    /**
+     * Generate a time-ordered UUIDv7 (RFC 9562)
+     * Layout: 48-bit unix millis | version 7 | 12-bit counter | variant | 62 random bits.
+     * The counter keeps ids strictly increasing within one JVM, so bulk inserts append
+     * to the right-hand edge of the primary-key B-tree instead of hitting random pages.
+     * @return New UUIDv7
+     */
+    public static UUID generateV7() {
+        long timestampMs;
+        int sequence;
+
+        synchronized (UuidUtils.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastTimestampMs) {
+                lastTimestampMs = now;
+                // Start in the lower half so the counter has headroom within the millisecond
+                counter = ThreadLocalRandom.current().nextInt(COUNTER_MAX / 2);
+            } else if (++counter > COUNTER_MAX) {
+                // Counter exhausted (or clock moved backwards): borrow the next millisecond
+                lastTimestampMs++;
+                counter = 0;
+            }
+            timestampMs = lastTimestampMs;
+            sequence = counter;
+        }
+
+        long msb = (timestampMs << 16) | (0x7L << 12) | sequence;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Extract the creation timestamp embedded in a UUIDv7
+     * @param uuid The UUID
+     * @return Unix epoch millis, or -1 if the UUID is not version 7
+     */
+    public static long getTimestampMs(UUID uuid) {
+        if (uuid == null || uuid.version() != 7) {
+            return -1L;
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
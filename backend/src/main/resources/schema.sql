@@ -10,6 +10,9 @@ CREATE EXTENSION IF NOT EXISTS btree_gin;
 -- Main profiles table (based on comprehensive dataset analysis)
 CREATE TABLE IF NOT EXISTS profiles (
     id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    -- Dense int ordinal for in-memory indexes; the application's schema migrator creates
+    -- profile_ordinal_seq, sets the default, backfills rows and builds the unique index
+    ordinal INTEGER,
     
     -- High-quality fields (0-3% null - core functionality from analysis)
     full_name VARCHAR(500) NOT NULL,
@@ -44,6 +47,9 @@ CREATE TABLE IF NOT EXISTS profiles (
     
     -- Searchable content for embeddings and full-text search
     searchable_content TEXT,
+    -- Parsed searchable_content; the schema migrator installs the trigger that maintains it,
+    -- backfills rows and builds its GIN index
+    search_vector tsvector,
     
     -- Vector embedding (1536 dimensions - OpenAI text-embedding-3-small)
     embedding vector(1536),
@@ -86,10 +92,9 @@ CREATE INDEX IF NOT EXISTS idx_profiles_technical_skills_gin ON profiles USING g
 CREATE INDEX IF NOT EXISTS idx_profiles_soft_skills_gin ON profiles USING gin(soft_skills) 
     WHERE soft_skills IS NOT NULL;
 
--- Full-text search index
-CREATE INDEX IF NOT EXISTS idx_profiles_full_text ON profiles 
-    USING gin(to_tsvector('english', searchable_content)) 
-    WHERE searchable_content IS NOT NULL;
+-- The search_vector GIN index and the pg_trgm indexes for substring lookups are built
+-- CONCURRENTLY by the application's schema migrator (SchemaMigrationService), so existing
+-- databases get them without blocking writes.
 
 -- Skills normalization table (1,871 unique skills from analysis)
 CREATE TABLE IF NOT EXISTS skills (
@@ -145,6 +150,34 @@ CREATE TABLE IF NOT EXISTS import_batches (
     batch_size INTEGER DEFAULT 5000
 );
 
+-- Online bucket migrations between shards (also the resume checkpoint)
+CREATE TABLE IF NOT EXISTS shard_migrations (
+    id VARCHAR(100) PRIMARY KEY,
+    source_shard VARCHAR(100) NOT NULL,
+    target_shard VARCHAR(100) NOT NULL,
+    bucket_from INTEGER NOT NULL,
+    bucket_to INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    cut_over BOOLEAN NOT NULL DEFAULT FALSE,
+    last_copied_id UUID,
+    last_deleted_id UUID,
+    rows_scanned BIGINT DEFAULT 0,
+    rows_copied BIGINT DEFAULT 0,
+    rows_deleted BIGINT DEFAULT 0,
+    error_message TEXT,
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Distinct filter values with profile counts, maintained incrementally by imports
+CREATE TABLE IF NOT EXISTS profile_facets (
+    facet VARCHAR(50) NOT NULL,
+    value TEXT NOT NULL,
+    profile_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (facet, value)
+);
+
 -- Function to update updated_at timestamp
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
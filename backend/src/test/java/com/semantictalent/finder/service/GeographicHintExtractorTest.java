@@ -0,0 +1,66 @@
+package com.semantictalent.finder.service;
+
+import com.semantictalent.finder.config.ShardConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeographicHintExtractorTest {
+    
+    private final GeographicHintExtractor extractor = new GeographicHintExtractor();
+    
+    @BeforeEach
+    void setUp() {
+        ShardConfig shardConfig = new ShardConfig();
+        shardConfig.setShards(List.of(
+            shard("shard_usa_east", List.of("IN", "ME"), List.of("US"), List.of("Boston")),
+            shard("shard_usa_west", List.of("OR"), List.of("US"), List.of("Portland")),
+            shard("shard_international", List.of(), List.of("GB", "IN"), List.of())));
+        ReflectionTestUtils.setField(extractor, "shardConfig", shardConfig);
+        extractor.rebuild();
+    }
+    
+    @Test
+    void lowercaseWordsThatSpellStateCodesAreNotHints() {
+        assertTrue(extractor.extractShardIds("engineers in tech or finance who email me").isEmpty());
+    }
+    
+    @Test
+    void capitalisedStateCodesAndNamesAreHints() {
+        assertEquals(Set.of("shard_usa_west"), extractor.extractShardIds("nurses in Salem, OR"));
+        assertEquals(Set.of("shard_usa_east"), extractor.extractShardIds("teachers in Indianapolis, IN"));
+        assertEquals(Set.of("shard_usa_east"), extractor.extractShardIds("lobster fishermen in maine"));
+    }
+    
+    @Test
+    void stateCodeWinsOverTheCountryWithTheSameCode() {
+        // "IN" is both Indiana and India; the code means the state, the name means the country
+        assertEquals(Set.of("shard_usa_east"), extractor.extractShardIds("Fort Wayne IN"));
+        assertEquals(Set.of("shard_international"), extractor.extractShardIds("developers in India"));
+    }
+    
+    @Test
+    void countryHintOnlyAddsShardsTheSpecificHintsMiss() {
+        assertEquals(Set.of("shard_usa_east"), extractor.extractShardIds("Boston, United States"));
+        assertEquals(Set.of("shard_usa_east", "shard_international"),
+            extractor.extractShardIds("Boston or London, United Kingdom"));
+    }
+    
+    private static ShardConfig.ShardDefinition shard(String shardId, List<String> states, List<String> countries,
+                                                     List<String> metros) {
+        ShardConfig.GeographicConfig geographic = new ShardConfig.GeographicConfig();
+        geographic.setStates(states);
+        geographic.setCountries(countries);
+        geographic.setMetros(metros);
+        ShardConfig.ShardDefinition shard = new ShardConfig.ShardDefinition();
+        shard.setShardId(shardId);
+        shard.setGeographic(geographic);
+        return shard;
+    }
+}
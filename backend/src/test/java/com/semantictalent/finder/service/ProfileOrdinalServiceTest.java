@@ -0,0 +1,86 @@
+package com.semantictalent.finder.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProfileOrdinalServiceTest {
+    
+    private final ProfileOrdinalService service = new ProfileOrdinalService();
+    
+    @BeforeEach
+    void setUp() {
+        // Smallest capacity init() allows, so the tests below outgrow it
+        ReflectionTestUtils.setField(service, "initialCapacity", 1024);
+        service.init();
+    }
+    
+    @Test
+    void mappingRoundTripsBothWays() {
+        UUID id = UUID.randomUUID();
+        service.register(42, id);
+        
+        assertEquals(42, service.getOrdinal(id));
+        assertEquals(id, service.getProfileId(42));
+        assertEquals(ProfileOrdinalService.NO_ORDINAL, service.getOrdinal(UUID.randomUUID()));
+        assertNull(service.getProfileId(41));
+        assertNull(service.getProfileId(43));
+        assertEquals(43, service.getOrdinalBound());
+    }
+    
+    @Test
+    void ordinalsBeyondTheInitialCapacityGrowTheArray() {
+        UUID low = UUID.randomUUID();
+        UUID high = UUID.randomUUID();
+        service.register(3, low);
+        service.register(100_000, high);
+        
+        assertEquals(low, service.getProfileId(3));
+        assertEquals(high, service.getProfileId(100_000));
+        assertEquals(100_000, service.getOrdinal(high));
+        assertEquals(3, service.getOrdinal(low));
+    }
+    
+    @Test
+    void everyMappingSurvivesRehashing() {
+        // 5000 entries force several rehashes of the 2048-slot starting table
+        List<UUID> ids = new ArrayList<>();
+        for (int ordinal = 0; ordinal < 5000; ordinal++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            service.register(ordinal, id);
+        }
+        
+        for (int ordinal = 0; ordinal < ids.size(); ordinal++) {
+            assertEquals(ordinal, service.getOrdinal(ids.get(ordinal)));
+            assertEquals(ids.get(ordinal), service.getProfileId(ordinal));
+        }
+        assertEquals(5000, service.getStats().get("mappedProfiles"));
+    }
+    
+    @Test
+    void reRegisteringMovesTheMappingAndClearsTheOldOrdinal() {
+        UUID id = UUID.randomUUID();
+        service.register(7, id);
+        service.register(7, id);
+        service.register(12, id);
+        
+        assertEquals(12, service.getOrdinal(id));
+        assertEquals(id, service.getProfileId(12));
+        assertNull(service.getProfileId(7));
+        assertEquals(1, service.getStats().get("mappedProfiles"));
+        
+        UUID other = UUID.randomUUID();
+        service.register(7, other);
+        assertEquals(7, service.getOrdinal(other));
+        assertEquals(12, service.getOrdinal(id));
+        assertEquals(2, service.getStats().get("mappedProfiles"));
+    }
+}
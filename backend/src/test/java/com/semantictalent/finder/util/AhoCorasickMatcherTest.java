@@ -0,0 +1,89 @@
+package com.semantictalent.finder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickMatcherTest {
+    
+    private static AhoCorasickMatcher<String> stateMatcher() {
+        AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>();
+        matcher.add("IN", "Indiana", true);
+        matcher.add("OR", "Oregon", true);
+        matcher.add("ME", "Maine", true);
+        matcher.add("Indiana", "Indiana");
+        matcher.add("Oregon", "Oregon");
+        matcher.add("Maine", "Maine");
+        matcher.add("Washington", "Washington");
+        matcher.add("Washington DC", "District of Columbia");
+        return matcher.build();
+    }
+    
+    @Test
+    void twoLetterCodesOnlyMatchInCapitals() {
+        AhoCorasickMatcher<String> matcher = stateMatcher();
+        
+        assertTrue(matcher.findAll("java developer in austin").isEmpty());
+        assertTrue(matcher.findAll("designer or writer").isEmpty());
+        assertTrue(matcher.findAll("email me").isEmpty());
+        assertTrue(matcher.findAll("Designer Or Writer, In Person").isEmpty());
+        
+        assertEquals(List.of("Indiana"), payloads(matcher.findAll("Engineer, Indianapolis IN")));
+        assertEquals(List.of("Oregon"), payloads(matcher.findAll("Portland OR")));
+        assertEquals(List.of("Maine"), payloads(matcher.findAll("nurse (ME)")));
+    }
+    
+    @Test
+    void fullNamesMatchInAnyCase() {
+        AhoCorasickMatcher<String> matcher = stateMatcher();
+        
+        assertEquals(List.of("Indiana"), payloads(matcher.findAll("nurses in indiana")));
+        // "IN" is a prefix of "INDIANA" but not a whole word, so only the name matches
+        List<AhoCorasickMatcher.Match<String>> matches = matcher.findAll("INDIANA");
+        assertEquals(1, matches.size());
+        assertEquals("Indiana", matches.get(0).pattern());
+    }
+    
+    @Test
+    void matchesMustStartAndEndOnWordBoundaries() {
+        AhoCorasickMatcher<String> matcher = stateMatcher();
+        
+        assertTrue(matcher.findAll("romaine lettuce").isEmpty());
+        assertTrue(matcher.findAll("Mainer").isEmpty());
+        assertTrue(matcher.findAll("ME2 MEx xME").isEmpty());
+        assertTrue(matcher.findAll("FORM INK HOME").isEmpty());
+        
+        List<AhoCorasickMatcher.Match<String>> matches = matcher.findAll("Maine-based, ME.");
+        assertEquals(2, matches.size());
+        assertEquals(0, matches.get(0).start());
+        assertEquals(5, matches.get(0).end());
+        assertEquals(13, matches.get(1).start());
+    }
+    
+    @Test
+    void findLongestPrefersTheLongerOverlappingPattern() {
+        AhoCorasickMatcher<String> matcher = stateMatcher();
+        
+        assertEquals(List.of("District of Columbia"), payloads(matcher.findLongest("lawyer in Washington DC")));
+        assertEquals(List.of("Washington"), payloads(matcher.findLongest("Washington state")));
+        assertEquals(List.of("Washington", "Oregon", "Oregon"), payloads(matcher.findLongest("Washington OR Oregon")));
+    }
+    
+    @Test
+    void requiresBuildBeforeMatching() {
+        AhoCorasickMatcher<String> matcher = new AhoCorasickMatcher<>();
+        matcher.add("Ohio", "Ohio");
+        
+        assertThrows(IllegalStateException.class, () -> matcher.findAll("Ohio"));
+        matcher.build();
+        assertThrows(IllegalStateException.class, () -> matcher.add("Iowa", "Iowa"));
+    }
+    
+    private static List<String> payloads(List<AhoCorasickMatcher.Match<String>> matches) {
+        return matches.stream().map(AhoCorasickMatcher.Match::payload).toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.semantictalent.finder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CosineLshIndexTest {
+    
+    // Production shape: 1536-dimensional embeddings, app.search.semantic-cache.lsh-tables/lsh-bits
+    private static final int DIMENSIONS = 1536;
+    private static final int TABLES = 8;
+    private static final int BITS = 12;
+    private static final int INDEXED = 1000;
+    private static final int QUERIES = 200;
+    
+    @Test
+    void findsNearDuplicates() {
+        Random random = new Random(42);
+        float[][] vectors = randomVectors(random, INDEXED);
+        CosineLshIndex index = indexOf(vectors);
+        
+        // At cosine c a bit agrees with probability 1 - acos(c)/pi: expected recall 0.999 at 0.99, 0.977 at 0.97
+        assertTrue(recall(index, vectors, random, 0.99) >= 0.99);
+        assertTrue(recall(index, vectors, random, 0.97) >= 0.93);
+    }
+    
+    @Test
+    void rarelyReturnsUnrelatedVectors() {
+        Random random = new Random(7);
+        CosineLshIndex index = indexOf(randomVectors(random, INDEXED));
+        
+        long candidates = 0;
+        for (float[] query : randomVectors(random, QUERIES)) {
+            candidates += index.candidates(query).size();
+        }
+        // Unrelated vectors share a 12-bit signature with probability 1/4096 per table: about 2 per query
+        assertTrue((double) candidates / QUERIES < 5.0);
+    }
+    
+    @Test
+    void removedVectorsAreNoLongerCandidates() {
+        Random random = new Random(1);
+        float[][] vectors = randomVectors(random, 3);
+        CosineLshIndex index = indexOf(vectors);
+        
+        assertTrue(index.candidates(vectors[1]).contains(1));
+        index.remove(1);
+        
+        assertFalse(index.candidates(vectors[1]).contains(1));
+        assertTrue(index.candidates(vectors[0]).contains(0));
+        assertEquals(2, index.size());
+    }
+    
+    @Test
+    void cosineOfParallelOrthogonalAndZeroVectors() {
+        assertEquals(1.0, CosineLshIndex.cosine(new float[] {1, 2, 3}, new float[] {2, 4, 6}), 1e-9);
+        assertEquals(0.0, CosineLshIndex.cosine(new float[] {1, 0}, new float[] {0, 5}), 1e-9);
+        assertEquals(0.0, CosineLshIndex.cosine(new float[] {0, 0}, new float[] {1, 1}), 1e-9);
+    }
+    
+    private static double recall(CosineLshIndex index, float[][] vectors, Random random, double similarity) {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            int target = random.nextInt(vectors.length);
+            float[] query = atCosine(vectors[target], similarity, random);
+            assertEquals(similarity, CosineLshIndex.cosine(query, vectors[target]), 1e-3);
+            if (index.candidates(query).contains(target)) {
+                found++;
+            }
+        }
+        return (double) found / QUERIES;
+    }
+    
+    private static CosineLshIndex indexOf(float[][] vectors) {
+        CosineLshIndex index = new CosineLshIndex(DIMENSIONS, TABLES, BITS, 0x5eed_cafeL);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+    
+    private static float[][] randomVectors(Random random, int count) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = unitGaussian(random);
+        }
+        return vectors;
+    }
+    
+    private static float[] unitGaussian(Random random) {
+        double[] values = new double[DIMENSIONS];
+        double norm = 0.0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            values[d] = random.nextGaussian();
+            norm += values[d] * values[d];
+        }
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) (values[d] / Math.sqrt(norm));
+        }
+        return vector;
+    }
+    
+    /**
+     * Unit vector at exactly the given cosine to the unit vector v, in a random direction
+     */
+    private static float[] atCosine(float[] v, double similarity, Random random) {
+        float[] noise = unitGaussian(random);
+        double dot = 0.0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            dot += noise[d] * v[d];
+        }
+        double[] orthogonal = new double[DIMENSIONS];
+        double norm = 0.0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            orthogonal[d] = noise[d] - dot * v[d];
+            norm += orthogonal[d] * orthogonal[d];
+        }
+        double sine = Math.sqrt(1.0 - similarity * similarity);
+        float[] result = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            result[d] = (float) (similarity * v[d] + sine * orthogonal[d] / Math.sqrt(norm));
+        }
+        return result;
+    }
+}
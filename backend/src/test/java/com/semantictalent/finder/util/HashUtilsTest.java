@@ -0,0 +1,54 @@
+package com.semantictalent.finder.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HashUtilsTest {
+    
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        assertEquals(0, HashUtils.murmur3(new byte[0], 0));
+        assertEquals(0x514E28B7, HashUtils.murmur3(new byte[0], 1));
+        assertEquals(0x81F16F39, HashUtils.murmur3(new byte[0], 0xffffffff));
+        assertEquals(0x2362F9DE, HashUtils.murmur3(new byte[4], 0));
+        assertEquals(0xFAF6CDB3, murmur3("Hello, world!", 1234));
+        assertEquals(0x2E4FF723, murmur3("The quick brown fox jumps over the lazy dog", 0));
+    }
+    
+    @Test
+    void murmur3HandlesEveryTailLength() {
+        int seed = 0x9747b28c;
+        assertEquals(0x7FA09EA6, murmur3("a", seed));
+        assertEquals(0x5D211726, murmur3("aa", seed));
+        assertEquals(0x283E0130, murmur3("aaa", seed));
+        assertEquals(0x5A97808A, murmur3("aaaa", seed));
+        assertEquals(0x74875592, murmur3("ab", seed));
+        assertEquals(0xC84A62DD, murmur3("abc", seed));
+        assertEquals(0xF0478627, murmur3("abcd", seed));
+        assertEquals(0x24884CBA, murmur3("Hello, world!", seed));
+    }
+    
+    @Test
+    void hashDefaultsToMurmur3WithSeedZero() {
+        String key = "018f3a1e-7c4b-7000-8000-000000000001";
+        int expected = murmur3(key, 0);
+        
+        assertEquals(expected, HashUtils.hash(null, key));
+        assertEquals(expected, HashUtils.hash("murmur3", key));
+        assertEquals(expected, HashUtils.hash("unknown", key));
+    }
+    
+    @Test
+    void crc32AndMd5UseTheirStandardDigests() {
+        // CRC-32 check value and the first four bytes of MD5("")
+        assertEquals(0xCBF43926, HashUtils.hash("crc32", "123456789"));
+        assertEquals(0xD41D8CD9, HashUtils.hash("MD5", ""));
+    }
+    
+    private static int murmur3(String value, int seed) {
+        return HashUtils.murmur3(value.getBytes(StandardCharsets.UTF_8), seed);
+    }
+}
@@ -0,0 +1,69 @@
+package com.semantictalent.finder.util;
+
+import com.semantictalent.finder.util.SearchAggregates.Facet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchAggregatesTest {
+    
+    @Test
+    void mergedPartialsMatchOneAggregateOverAllCandidates() {
+        SearchAggregates shardA = new SearchAggregates(0.8);
+        SearchAggregates shardB = new SearchAggregates(0.8);
+        SearchAggregates single = new SearchAggregates(0.8);
+        for (SearchAggregates target : List.of(shardA, single)) {
+            target.add("software", "Boston", List.of("java", "sql"), 0.9, 0.95);
+            target.add("finance", "Boston", List.of("excel"), 0.7, 0.5);
+        }
+        for (SearchAggregates target : List.of(shardB, single)) {
+            target.add("software", "Austin", List.of("java"), 0.6, 0.85);
+            target.add(null, "Austin", (List<String>) null, null, null);
+        }
+        
+        SearchAggregates merged = new SearchAggregates(0.8);
+        merged.merge(shardA);
+        merged.merge(shardB);
+        
+        assertEquals(single.getProfileCount(), merged.getProfileCount());
+        assertEquals(single.getAvgSimilarityScore(), merged.getAvgSimilarityScore(), 1e-9);
+        assertEquals(single.getHighQualityCount(), merged.getHighQualityCount());
+        for (Facet facet : Facet.values()) {
+            assertEquals(single.top(facet, 10), merged.top(facet, 10));
+            assertEquals(single.getDistinctCount(facet), merged.getDistinctCount(facet));
+        }
+        assertEquals(Map.of("java", 2, "sql", 1, "excel", 1), merged.top(Facet.SKILL, 10));
+        assertEquals(4, merged.getProfileCount());
+        assertEquals(2, merged.getHighQualityCount());
+    }
+    
+    @Test
+    void topRanksByCountThenFirstSeen() {
+        SearchAggregates aggregates = new SearchAggregates(0.8);
+        aggregates.add("health", null, (List<String>) null, null, null);
+        aggregates.add("finance", null, (List<String>) null, null, null);
+        aggregates.add("software", null, (List<String>) null, null, null);
+        aggregates.add("software", null, (List<String>) null, null, null);
+        
+        assertEquals(List.of("software", "health", "finance"), List.copyOf(aggregates.top(Facet.INDUSTRY, 10).keySet()));
+        assertEquals(List.of("software", "health"), List.copyOf(aggregates.top(Facet.INDUSTRY, 2).keySet()));
+        assertNull(aggregates.getAvgSimilarityScore());
+    }
+    
+    @Test
+    void internedValuesGrowPastTheInitialCapacity() {
+        SearchAggregates aggregates = new SearchAggregates(0.8);
+        for (int i = 0; i < 500; i++) {
+            aggregates.add("industry-" + (i % 200), "city-" + i, List.of("skill"), 1.0, 1.0);
+        }
+        
+        assertEquals(200, aggregates.getDistinctCount(Facet.INDUSTRY));
+        assertEquals(500, aggregates.getDistinctCount(Facet.LOCATION));
+        assertEquals(Map.of("skill", 500), aggregates.top(Facet.SKILL, 5));
+        assertEquals(3, aggregates.top(Facet.INDUSTRY, 1).values().iterator().next());
+    }
+}
@@ -0,0 +1,98 @@
+package com.semantictalent.finder.util;
+
+import com.semantictalent.finder.dto.ProfileSummaryDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopKCollectorTest {
+    
+    @Test
+    void keepsBestKAndRaisesThresholdOnceFull() {
+        TopKCollector topK = new TopKCollector(3);
+        assertEquals(Double.NEGATIVE_INFINITY, topK.getThreshold());
+        
+        topK.offer(profile(0.5));
+        topK.offer(profile(0.9));
+        assertEquals(Double.NEGATIVE_INFINITY, topK.getThreshold());
+        
+        topK.offer(profile(0.7));
+        assertEquals(0.5, topK.getThreshold());
+        
+        assertTrue(topK.offer(profile(0.8)));
+        assertEquals(0.7, topK.getThreshold());
+        assertFalse(topK.offer(profile(0.6)));
+        // Must beat the threshold, not tie it
+        assertFalse(topK.offer(profile(0.7)));
+        
+        assertEquals(List.of(0.9, 0.8, 0.7), scores(topK.toSortedList()));
+    }
+    
+    @Test
+    void stopsAtFirstRankedProfileBelowThreshold() {
+        TopKCollector topK = new TopKCollector(2);
+        topK.offerAll(List.of(profile(0.9), profile(0.8)));
+        
+        int accepted = topK.offerAll(List.of(profile(0.85), profile(0.7), profile(0.95)));
+        
+        // 0.7 can't enter, so the (mis-sorted) 0.95 after it is never looked at
+        assertEquals(1, accepted);
+        assertEquals(4, topK.getOffered());
+        assertEquals(List.of(0.9, 0.85), scores(topK.toSortedList()));
+    }
+    
+    @Test
+    void holdsAProfileReturnedByTwoShardsOnce() {
+        UUID id = UUID.randomUUID();
+        TopKCollector topK = new TopKCollector(3);
+        
+        topK.offerAll(List.of(profile(id, 0.9), profile(0.4)));
+        int accepted = topK.offerAll(List.of(profile(id, 0.9), profile(0.3)));
+        
+        assertEquals(1, accepted);
+        assertEquals(3, topK.toSortedList().size());
+        assertEquals(1, topK.toSortedList().stream().filter(p -> id.equals(p.getId())).count());
+    }
+    
+    @Test
+    void evictedProfileCanEnterAgain() {
+        UUID id = UUID.randomUUID();
+        TopKCollector topK = new TopKCollector(1);
+        
+        topK.offer(profile(id, 0.5));
+        topK.offer(profile(0.8));
+        
+        assertFalse(topK.offer(profile(id, 0.5)));
+        assertTrue(topK.offer(profile(id, 0.9)));
+        assertEquals(id, topK.toSortedList().get(0).getId());
+    }
+    
+    @Test
+    void ranksHybridResultsOnFusedScore() {
+        TopKCollector topK = new TopKCollector(2);
+        ProfileSummaryDto fullTextOnly = ProfileSummaryDto.builder().id(UUID.randomUUID()).fusedScore(0.032).build();
+        ProfileSummaryDto both = ProfileSummaryDto.builder().id(UUID.randomUUID()).similarityScore(0.2).fusedScore(0.033).build();
+        ProfileSummaryDto semanticOnly = ProfileSummaryDto.builder().id(UUID.randomUUID()).similarityScore(0.9).fusedScore(0.016).build();
+        
+        topK.offerAll(List.of(both, fullTextOnly, semanticOnly));
+        
+        assertEquals(List.of(both, fullTextOnly), topK.toSortedList());
+    }
+    
+    private static ProfileSummaryDto profile(double score) {
+        return profile(UUID.randomUUID(), score);
+    }
+    
+    private static ProfileSummaryDto profile(UUID id, double score) {
+        return ProfileSummaryDto.builder().id(id).similarityScore(score).build();
+    }
+    
+    private static List<Double> scores(List<ProfileSummaryDto> profiles) {
+        return profiles.stream().map(ProfileSummaryDto::getSimilarityScore).toList();
+    }
+}
@@ -17,7 +17,8 @@ export interface ProfileSummary {
   industry: string;
   companyName: string;
   jobTitle: string;
-  similarityScore: number;
+  similarityScore: number | null;
+  fusedScore?: number;
   matchingSkills: string[];
 }
 